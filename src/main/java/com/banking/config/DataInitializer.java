@@ -4,23 +4,29 @@ import com.banking.model.Account;
 import com.banking.model.User;
 import com.banking.repository.AccountRepository;
 import com.banking.repository.UserRepository;
+import com.banking.service.AccountNumberAllocator;
+import com.banking.service.LedgerService;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Random;
 
 @Component
 public class DataInitializer implements CommandLineRunner {
 
     private final UserRepository userRepository;
     private final AccountRepository accountRepository;
+    private final LedgerService ledgerService;
+    private final AccountNumberAllocator accountNumberAllocator;
 
-    public DataInitializer(UserRepository userRepository, AccountRepository accountRepository) {
+    public DataInitializer(UserRepository userRepository, AccountRepository accountRepository,
+                           LedgerService ledgerService, AccountNumberAllocator accountNumberAllocator) {
         this.userRepository = userRepository;
         this.accountRepository = accountRepository;
+        this.ledgerService = ledgerService;
+        this.accountNumberAllocator = accountNumberAllocator;
     }
 
     @Override
@@ -35,40 +41,29 @@ public class DataInitializer implements CommandLineRunner {
                 
                 // Create Savings Account
                 Account savingsAccount = new Account();
-                savingsAccount.setAccountNumber(generateAccountNumber());
+                savingsAccount.setAccountNumber(accountNumberAllocator.next());
                 savingsAccount.setAccountName("My Savings Account");
                 savingsAccount.setAccountType(Account.AccountType.SAVINGS);
                 savingsAccount.setBalance(new BigDecimal("10000.00"));
                 savingsAccount.setUser(user);
                 savingsAccount.setIfscCode("BANK0001234");
                 accountRepository.save(savingsAccount);
+                ledgerService.recordOpeningBalance(savingsAccount);
                 
                 // Create Current Account
                 Account currentAccount = new Account();
-                currentAccount.setAccountNumber(generateAccountNumber());
+                currentAccount.setAccountNumber(accountNumberAllocator.next());
                 currentAccount.setAccountName("My Current Account");
                 currentAccount.setAccountType(Account.AccountType.CURRENT);
                 currentAccount.setBalance(new BigDecimal("5000.00"));
                 currentAccount.setUser(user);
                 currentAccount.setIfscCode("BANK0001234");
                 accountRepository.save(currentAccount);
+                ledgerService.recordOpeningBalance(currentAccount);
                 
                 System.out.println("Created 2 default accounts for user: " + user.getUsername());
             }
         }
     }
-
-    private String generateAccountNumber() {
-        Random random = new Random();
-        long number = 1000000000L + random.nextInt(900000000);
-        String accountNumber = String.valueOf(number);
-        
-        while (accountRepository.existsByAccountNumber(accountNumber)) {
-            number = 1000000000L + random.nextInt(900000000);
-            accountNumber = String.valueOf(number);
-        }
-        
-        return accountNumber;
-    }
 }
 
@@ -0,0 +1,72 @@
+package com.banking.config;
+
+import com.banking.model.TransactionIdGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Prepares id generation at startup. Sets this instance's node id for business
+ * transaction ids, and moves the pooled id sequences past the ids already in use.
+ * Tables created before the switch from identity columns have rows but a fresh
+ * sequence starting at 1. Runs after the schema migrations, before any runner
+ * inserts data.
+ */
+@Component
+public class IdGenerationInitializer {
+
+    // allocation sizes must match the @SequenceGenerator of each entity
+    private static final List<IdSequence> SEQUENCES = List.of(
+            new IdSequence("users_seq", "users", 50),
+            new IdSequence("accounts_seq", "accounts", 50),
+            new IdSequence("transactions_seq", "transactions", 50),
+            new IdSequence("postings_seq", "postings", 1));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${banking.node-id:-1}")
+    private int nodeId;
+
+    // the factory is only injected so that the schema exists before we run
+    public IdGenerationInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        if (nodeId >= 0) {
+            TransactionIdGenerator.setNodeId(nodeId);
+            System.out.println("[IDS] Transaction id node: " + TransactionIdGenerator.getNodeId());
+        } else {
+            System.err.println("[IDS] WARNING: banking.node-id is not set; using node "
+                    + TransactionIdGenerator.getNodeId() + " derived from host and pid. Transaction ids of"
+                    + " instances that derive the same node will collide; set a distinct banking.node-id on each.");
+        }
+        for (IdSequence sequence : SEQUENCES) {
+            alignSequence(sequence);
+        }
+    }
+
+    private void alignSequence(IdSequence sequence) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + sequence.table(), Long.class);
+        Long nextValue = jdbcTemplate.queryForObject(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?",
+                Long.class, sequence.name().toUpperCase());
+        if (maxId == null || nextValue == null) {
+            return;
+        }
+        // the pooled optimizer hands out the block ending at the value it reads
+        if (nextValue - sequence.allocationSize() < maxId) {
+            long restart = maxId + sequence.allocationSize() + 1;
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence.name() + " RESTART WITH " + restart);
+            System.out.println("[IDS] Moved " + sequence.name() + " past existing id " + maxId);
+        }
+    }
+
+    private record IdSequence(String name, String table, int allocationSize) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.banking.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns a failed account ownership check into the same response the endpoints gave
+ * before the check moved into {@code @PreAuthorize}. Not owning the account and the
+ * account not existing look alike, so account numbers cannot be probed.
+ */
+@RestControllerAdvice(assignableTypes = {AccountController.class, TransactionController.class})
+public class AccountAccessDeniedHandler {
+
+    @ExceptionHandler(AccessDeniedException.class)
+    public ResponseEntity<?> accessDenied(AccessDeniedException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Account not found or access denied");
+        return ResponseEntity.badRequest().body(error);
+    }
+}
@@ -6,6 +6,7 @@ import com.banking.service.AccountService;
 import com.banking.service.AuthService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -77,20 +78,9 @@ public class AccountController {
     }
 
     @GetMapping("/{accountNumber}/balance")
+    @PreAuthorize("@accountAccess.owns(#accountNumber)")
     public ResponseEntity<?> getBalance(@PathVariable String accountNumber) {
         try {
-            User user = authService.getCurrentUser();
-            List<Account> userAccounts = accountService.getUserAccounts(user.getId());
-            
-            boolean ownsAccount = userAccounts.stream()
-                    .anyMatch(acc -> acc.getAccountNumber().equals(accountNumber));
-            
-            if (!ownsAccount) {
-                Map<String, String> error = new HashMap<>();
-                error.put("error", "Account not found or access denied");
-                return ResponseEntity.badRequest().body(error);
-            }
-
             return ResponseEntity.ok(Map.of(
                 "accountNumber", accountNumber,
                 "balance", accountService.getAccountBalance(accountNumber)
@@ -103,16 +93,10 @@ public class AccountController {
     }
 
     @GetMapping("/{accountNumber}")
+    @PreAuthorize("@accountAccess.owns(#accountNumber)")
     public ResponseEntity<?> getAccount(@PathVariable String accountNumber) {
         try {
-            User user = authService.getCurrentUser();
-            List<Account> userAccounts = accountService.getUserAccounts(user.getId());
-            
-            Account account = userAccounts.stream()
-                    .filter(acc -> acc.getAccountNumber().equals(accountNumber))
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("Account not found"));
-
+            Account account = accountService.getAccountByNumber(accountNumber);
             return ResponseEntity.ok(account);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
@@ -1,13 +1,27 @@
 package com.banking.controller;
 
 import com.banking.model.Transaction;
+import com.banking.service.ClearingService;
+import com.banking.service.HotAccountService;
+import com.banking.service.IdempotencyService;
+import com.banking.service.InterestAccrualService;
+import com.banking.service.LedgerService;
+import com.banking.service.OutboxRelay;
+import com.banking.service.TransactionAnalyticsService;
 import com.banking.service.TransactionService;
+import com.banking.service.XmlMirrorService;
+import com.banking.service.XmlReconciliationService;
 import com.banking.service.XmlTransactionService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.TransactionSystemException;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,11 +34,38 @@ public class AdminController {
 
     private final TransactionService transactionService;
     private final XmlTransactionService xmlTransactionService;
+    private final XmlMirrorService xmlMirrorService;
+    private final XmlReconciliationService xmlReconciliationService;
+    private final TransactionAnalyticsService transactionAnalyticsService;
+    private final IdempotencyService idempotencyService;
+    private final HotAccountService hotAccountService;
+    private final LedgerService ledgerService;
+    private final InterestAccrualService interestAccrualService;
+    private final ClearingService clearingService;
+    private final OutboxRelay outboxRelay;
 
     public AdminController(TransactionService transactionService,
-                          XmlTransactionService xmlTransactionService) {
+                          XmlTransactionService xmlTransactionService,
+                          XmlMirrorService xmlMirrorService,
+                          XmlReconciliationService xmlReconciliationService,
+                          TransactionAnalyticsService transactionAnalyticsService,
+                          IdempotencyService idempotencyService,
+                          HotAccountService hotAccountService,
+                          LedgerService ledgerService,
+                          InterestAccrualService interestAccrualService,
+                          ClearingService clearingService,
+                          OutboxRelay outboxRelay) {
         this.transactionService = transactionService;
         this.xmlTransactionService = xmlTransactionService;
+        this.xmlMirrorService = xmlMirrorService;
+        this.xmlReconciliationService = xmlReconciliationService;
+        this.transactionAnalyticsService = transactionAnalyticsService;
+        this.idempotencyService = idempotencyService;
+        this.hotAccountService = hotAccountService;
+        this.ledgerService = ledgerService;
+        this.interestAccrualService = interestAccrualService;
+        this.clearingService = clearingService;
+        this.outboxRelay = outboxRelay;
     }
 
     @GetMapping("/users")
@@ -37,8 +78,10 @@ public class AdminController {
     }
 
     @GetMapping("/transactions")
-    public ResponseEntity<?> getAllTransactions() {
-        List<XmlTransactionService.TransactionXml> transactions = xmlTransactionService.loadTransactionsFromXml();
+    public ResponseEntity<?> getAllTransactions(@RequestParam(required = false) String accountNumber,
+                                                @RequestParam(required = false) Integer limit) {
+        List<XmlTransactionService.TransactionXml> transactions = xmlTransactionService.queryTransactions(
+                accountNumber, null, null, limit != null ? limit : Integer.MAX_VALUE);
         return ResponseEntity.ok(transactions);
     }
 
@@ -48,13 +91,201 @@ public class AdminController {
         return ResponseEntity.ok(transactions);
     }
 
+    @GetMapping("/transactions/xml/mirror")
+    public ResponseEntity<?> getXmlMirrorStatus() {
+        return ResponseEntity.ok(xmlMirrorService.getMetrics());
+    }
+
+    @GetMapping("/transactions/xml/segments")
+    public ResponseEntity<?> getXmlSegments() {
+        return ResponseEntity.ok(xmlTransactionService.getSegmentInfo());
+    }
+
+    @GetMapping("/transactions/xml/reconcile")
+    public ResponseEntity<?> getLastReconciliation() {
+        Map<String, Object> report = xmlReconciliationService.getLastReport();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/transactions/xml/reconcile")
+    public ResponseEntity<?> reconcileXml(@RequestParam(defaultValue = "false") boolean repair) {
+        return ResponseEntity.ok(xmlReconciliationService.reconcile(repair));
+    }
+
+    @PostMapping("/transactions/columnar/export")
+    public ResponseEntity<?> exportColumnar() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("rows", transactionAnalyticsService.exportColumnar());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/analytics/sum-by-account")
+    public ResponseEntity<?> getSumByAccount() {
+        return ResponseEntity.ok(transactionAnalyticsService.sumByAccount());
+    }
+
+    @GetMapping("/analytics/volume-by-day")
+    public ResponseEntity<?> getVolumeByDay(@RequestParam(required = false) String transactionType) {
+        return ResponseEntity.ok(transactionAnalyticsService.volumeByDay(transactionType));
+    }
+
+    @GetMapping("/accounts/hot")
+    public ResponseEntity<?> getHotAccounts() {
+        return ResponseEntity.ok(hotAccountService.getHotAccounts());
+    }
+
+    @PostMapping("/accounts/{accountNumber}/hot")
+    public ResponseEntity<?> enableHotAccount(@PathVariable String accountNumber,
+                                              @RequestParam(defaultValue = "16") int slots) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("accountNumber", accountNumber);
+            response.put("slots", hotAccountService.enable(accountNumber, slots));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/ledger/{accountNumber}")
+    public ResponseEntity<?> verifyLedger(@PathVariable String accountNumber) {
+        try {
+            return ResponseEntity.ok(ledgerService.verify(accountNumber));
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/ledger/{accountNumber}/balance-at")
+    public ResponseEntity<?> getBalanceAt(@PathVariable String accountNumber,
+                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("accountNumber", accountNumber);
+        response.put("at", at);
+        response.put("balance", ledgerService.getBalanceAt(accountNumber, at));
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/ledger/{accountNumber}/rebuild")
+    public ResponseEntity<?> rebuildFromLedger(@PathVariable String accountNumber) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("accountNumber", accountNumber);
+            response.put("balance", ledgerService.rebuild(accountNumber));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/ledger/transactions/{transactionId}")
+    public ResponseEntity<?> getPostings(@PathVariable Long transactionId) {
+        return ResponseEntity.ok(ledgerService.getPostings(transactionId));
+    }
+
+    @GetMapping("/interest/runs")
+    public ResponseEntity<?> getInterestRuns() {
+        return ResponseEntity.ok(interestAccrualService.getRecentRuns());
+    }
+
+    @GetMapping("/interest/runs/{period}")
+    public ResponseEntity<?> getInterestRun(@PathVariable String period) {
+        try {
+            return ResponseEntity.ok(interestAccrualService.getStatus(YearMonth.parse(period)));
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @PostMapping("/interest/runs/{period}")
+    public ResponseEntity<?> startInterestRun(@PathVariable String period) {
+        try {
+            return ResponseEntity.ok(interestAccrualService.start(YearMonth.parse(period)));
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/clearing/batches")
+    public ResponseEntity<?> getClearingBatches() {
+        return ResponseEntity.ok(clearingService.getRecentBatches());
+    }
+
+    @PostMapping("/clearing/cycle")
+    public ResponseEntity<?> runClearingCycle() {
+        try {
+            return ResponseEntity.ok(clearingService.runCycle());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @PostMapping("/clearing/responses")
+    public ResponseEntity<?> ingestClearingResponses() {
+        try {
+            return ResponseEntity.ok(clearingService.ingestResponses());
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/outbox")
+    public ResponseEntity<?> getOutboxStats() {
+        return ResponseEntity.ok(outboxRelay.getStats());
+    }
+
+    @GetMapping("/outbox/dead")
+    public ResponseEntity<?> getDeadLetters() {
+        return ResponseEntity.ok(outboxRelay.getDeadLetters());
+    }
+
+    @PostMapping("/outbox/dead/{id}/retry")
+    public ResponseEntity<?> retryDeadLetter(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(outboxRelay.retryDeadLetter(id));
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @PostMapping("/accounts/{accountNumber}/deposit")
     public ResponseEntity<?> deposit(@PathVariable String accountNumber,
                                      @RequestParam BigDecimal amount,
-                                     @RequestParam(required = false) String description) {
+                                     @RequestParam(required = false) String description,
+                                     @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("accountNumber", accountNumber);
+        request.put("amount", amount);
+        request.put("description", description);
+        return idempotencyService.execute(idempotencyKey, "admin/deposit", request,
+                () -> executeDeposit(accountNumber, amount, description));
+    }
+
+    private ResponseEntity<?> executeDeposit(String accountNumber, BigDecimal amount, String description) {
         try {
             Transaction transaction = transactionService.deposit(accountNumber, amount, description);
             return ResponseEntity.ok(transaction);
+        } catch (TransactionSystemException e) {
+            // the commit failed, so the deposit may or may not have been applied
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "The outcome of the deposit is unknown; check the account before retrying");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
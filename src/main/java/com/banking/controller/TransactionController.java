@@ -1,17 +1,24 @@
 package com.banking.controller;
 
+import com.banking.dto.BatchTransferRequest;
+import com.banking.dto.BatchTransferResult;
+import com.banking.dto.TransactionView;
 import com.banking.dto.TransferRequest;
 import com.banking.model.Transaction;
-import com.banking.model.User;
 import com.banking.service.AccountService;
-import com.banking.service.AuthService;
+import com.banking.service.IdempotencyService;
 import com.banking.service.TransactionService;
+import com.banking.service.TransferNotSettledException;
 import jakarta.validation.Valid;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.TransactionSystemException;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -22,38 +29,35 @@ import java.util.Map;
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class TransactionController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final TransactionService transactionService;
     private final AccountService accountService;
-    private final AuthService authService;
+    private final IdempotencyService idempotencyService;
 
     public TransactionController(TransactionService transactionService,
                                 AccountService accountService,
-                                AuthService authService) {
+                                IdempotencyService idempotencyService) {
         this.transactionService = transactionService;
         this.accountService = accountService;
-        this.authService = authService;
+        this.idempotencyService = idempotencyService;
     }
 
     @PostMapping("/transfer")
-    public ResponseEntity<?> transferFunds(@Valid @RequestBody TransferRequest request) {
+    @PreAuthorize("@accountAccess.owns(#request.fromAccountNumber)")
+    public ResponseEntity<?> transferFunds(@Valid @RequestBody TransferRequest request,
+                                           @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                           Principal principal) {
+        return idempotencyService.execute(idempotencyKey, "transfer", request,
+                () -> executeTransfer(request, principal.getName()));
+    }
+
+    private ResponseEntity<?> executeTransfer(TransferRequest request, String username) {
         try {
-            User user = authService.getCurrentUser();
-            System.out.println("[TRANSFER] User: " + user.getUsername() + " initiating transfer");
+            System.out.println("[TRANSFER] User: " + username + " initiating transfer");
             System.out.println("[TRANSFER] From: " + request.getFromAccountNumber() + " To: " + request.getToAccountNumber());
             System.out.println("[TRANSFER] Amount: " + request.getAmount());
-            
-            List<com.banking.model.Account> userAccounts = accountService.getUserAccounts(user.getId());
-            
-            // Verify from account belongs to user
-            boolean ownsAccount = userAccounts.stream()
-                    .anyMatch(acc -> acc.getAccountNumber().equals(request.getFromAccountNumber()));
-            
-            if (!ownsAccount) {
-                System.err.println("[TRANSFER] ERROR: User does not own from account");
-                Map<String, String> error = new HashMap<>();
-                error.put("error", "Account not found or access denied");
-                return ResponseEntity.badRequest().body(error);
-            }
 
             Transaction transaction;
             if (request.getIfscCode() != null && !request.getIfscCode().trim().isEmpty()) {
@@ -79,6 +83,23 @@ public class TransactionController {
 
             System.out.println("[TRANSFER] Success! Transaction ID: " + transaction.getId());
             return ResponseEntity.ok(transaction);
+        } catch (TransferNotSettledException e) {
+            // applied, or possibly applied: not a client error, and not to be retried blindly
+            System.err.println("[TRANSFER] Not settled (" + e.getOutcome() + "): " + e.getMessage());
+            Map<String, Object> body = new HashMap<>();
+            body.put("error", e.getMessage());
+            if (e.getOutcome() == TransferNotSettledException.Outcome.CREDIT_PENDING) {
+                body.put("transactionId", e.getTransactionId());
+                body.put("status", Transaction.TransactionStatus.PENDING);
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(body);
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+        } catch (TransactionSystemException e) {
+            // the commit failed, so the changes may or may not have been applied
+            System.err.println("[TRANSFER] Commit failed: " + e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "The outcome of the request is unknown; check the account before retrying");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         } catch (Exception e) {
             System.err.println("[TRANSFER] ERROR: " + e.getMessage());
             e.printStackTrace();
@@ -88,22 +109,58 @@ public class TransactionController {
         }
     }
 
+    // every source account must belong to the user
+    @PostMapping("/transfer/batch")
+    @PreAuthorize("@accountAccess.ownsAll(#request.transfers.![fromAccountNumber])")
+    public ResponseEntity<?> transferBatch(@Valid @RequestBody BatchTransferRequest request,
+                                           @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                           Principal principal) {
+        return idempotencyService.execute(idempotencyKey, "transfer/batch", request,
+                () -> executeBatch(request, principal.getName()));
+    }
+
+    private ResponseEntity<?> executeBatch(BatchTransferRequest request, String username) {
+        try {
+            System.out.println("[TRANSFER] User: " + username + " submitting batch of "
+                    + request.getTransfers().size() + " transfers (atomic: " + request.isAtomic() + ")");
+            List<BatchTransferResult> results = transactionService.transferBatch(
+                    request.getTransfers(), request.isAtomic());
+            long completed = results.stream()
+                    .filter(result -> result.getStatus() == BatchTransferResult.Status.COMPLETED)
+                    .count();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("atomic", request.isAtomic());
+            response.put("total", results.size());
+            response.put("completed", completed);
+            response.put("failed", results.size() - completed);
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+        } catch (TransactionSystemException e) {
+            // the commit failed, so the changes may or may not have been applied
+            System.err.println("[TRANSFER] Commit failed: " + e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "The outcome of the request is unknown; check the account before retrying");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        } catch (Exception e) {
+            System.err.println("[TRANSFER] ERROR: " + e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @GetMapping("/{accountNumber}")
-    public ResponseEntity<?> getAccountTransactions(@PathVariable String accountNumber) {
+    @PreAuthorize("@accountAccess.owns(#accountNumber)")
+    public ResponseEntity<?> getAccountTransactions(@PathVariable String accountNumber,
+                                                    @RequestParam(required = false) Integer limit,
+                                                    @RequestParam(required = false) String cursor) {
         try {
-            User user = authService.getCurrentUser();
-            List<com.banking.model.Account> userAccounts = accountService.getUserAccounts(user.getId());
-            
-            boolean ownsAccount = userAccounts.stream()
-                    .anyMatch(acc -> acc.getAccountNumber().equals(accountNumber));
-            
-            if (!ownsAccount) {
-                Map<String, String> error = new HashMap<>();
-                error.put("error", "Account not found or access denied");
-                return ResponseEntity.badRequest().body(error);
+            if (limit != null || cursor != null) {
+                return ResponseEntity.ok(transactionService.getAccountTransactionsPage(
+                        accountNumber, null, null, cursor, pageSize(limit)));
             }
-
-            List<Transaction> transactions = transactionService.getAccountTransactions(accountNumber);
+            List<TransactionView> transactions = transactionService.getAccountTransactions(accountNumber);
             return ResponseEntity.ok(transactions);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
@@ -113,24 +170,19 @@ public class TransactionController {
     }
 
     @GetMapping("/{accountNumber}/history")
+    @PreAuthorize("@accountAccess.owns(#accountNumber)")
     public ResponseEntity<?> getAccountTransactionsByDateRange(
             @PathVariable String accountNumber,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
         try {
-            User user = authService.getCurrentUser();
-            List<com.banking.model.Account> userAccounts = accountService.getUserAccounts(user.getId());
-            
-            boolean ownsAccount = userAccounts.stream()
-                    .anyMatch(acc -> acc.getAccountNumber().equals(accountNumber));
-            
-            if (!ownsAccount) {
-                Map<String, String> error = new HashMap<>();
-                error.put("error", "Account not found or access denied");
-                return ResponseEntity.badRequest().body(error);
+            if (limit != null || cursor != null) {
+                return ResponseEntity.ok(transactionService.getAccountTransactionsPage(
+                        accountNumber, startDate, endDate, cursor, pageSize(limit)));
             }
-
-            List<Transaction> transactions = transactionService.getAccountTransactionsByDateRange(
+            List<TransactionView> transactions = transactionService.getAccountTransactionsByDateRange(
                     accountNumber, startDate, endDate);
             return ResponseEntity.ok(transactions);
         } catch (Exception e) {
@@ -141,20 +193,9 @@ public class TransactionController {
     }
 
     @GetMapping("/{accountNumber}/balance")
+    @PreAuthorize("@accountAccess.owns(#accountNumber)")
     public ResponseEntity<?> getBalance(@PathVariable String accountNumber) {
         try {
-            User user = authService.getCurrentUser();
-            List<com.banking.model.Account> userAccounts = accountService.getUserAccounts(user.getId());
-            
-            boolean ownsAccount = userAccounts.stream()
-                    .anyMatch(acc -> acc.getAccountNumber().equals(accountNumber));
-            
-            if (!ownsAccount) {
-                Map<String, String> error = new HashMap<>();
-                error.put("error", "Account not found or access denied");
-                return ResponseEntity.badRequest().body(error);
-            }
-
             BigDecimal balance = accountService.getAccountBalance(accountNumber);
             Map<String, Object> response = new HashMap<>();
             response.put("accountNumber", accountNumber);
@@ -168,9 +209,16 @@ public class TransactionController {
     }
 
     @PostMapping("/deposit")
-    public ResponseEntity<?> deposit(@RequestBody Map<String, Object> request) {
+    @PreAuthorize("@accountAccess.owns(#request['accountNumber'])")
+    public ResponseEntity<?> deposit(@RequestBody Map<String, Object> request,
+                                     @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                     Principal principal) {
+        return idempotencyService.execute(idempotencyKey, "deposit", request,
+                () -> executeDeposit(request, principal.getName()));
+    }
+
+    private ResponseEntity<?> executeDeposit(Map<String, Object> request, String username) {
         try {
-            User user = authService.getCurrentUser();
             String accountNumber = (String) request.get("accountNumber");
             BigDecimal amount = new BigDecimal(request.get("amount").toString());
             String description = (String) request.get("description");
@@ -181,17 +229,6 @@ public class TransactionController {
                 return ResponseEntity.badRequest().body(error);
             }
             
-            List<com.banking.model.Account> userAccounts = accountService.getUserAccounts(user.getId());
-            
-            boolean ownsAccount = userAccounts.stream()
-                    .anyMatch(acc -> acc.getAccountNumber().equals(accountNumber));
-            
-            if (!ownsAccount) {
-                Map<String, String> error = new HashMap<>();
-                error.put("error", "Account not found or access denied");
-                return ResponseEntity.badRequest().body(error);
-            }
-            
             if (amount.compareTo(BigDecimal.ZERO) <= 0) {
                 Map<String, String> error = new HashMap<>();
                 error.put("error", "Amount must be greater than zero");
@@ -199,9 +236,15 @@ public class TransactionController {
             }
             
             Transaction transaction = transactionService.deposit(accountNumber, amount, description);
-            System.out.println("[DEPOSIT] User: " + user.getUsername() + " deposited " + amount + " to account " + accountNumber);
+            System.out.println("[DEPOSIT] User: " + username + " deposited " + amount + " to account " + accountNumber);
             
             return ResponseEntity.ok(transaction);
+        } catch (TransactionSystemException e) {
+            // the commit failed, so the changes may or may not have been applied
+            System.err.println("[DEPOSIT] Commit failed: " + e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "The outcome of the request is unknown; check the account before retrying");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         } catch (Exception e) {
             System.err.println("[DEPOSIT] ERROR: " + e.getMessage());
             e.printStackTrace();
@@ -210,5 +253,13 @@ public class TransactionController {
             return ResponseEntity.badRequest().body(error);
         }
     }
+
+    // page size for history requests: DEFAULT_PAGE_SIZE unless given, at most MAX_PAGE_SIZE
+    private static int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
 }
 
@@ -0,0 +1,20 @@
+package com.banking.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public class BatchTransferRequest {
+    @NotEmpty
+    @Valid
+    private List<TransferRequest> transfers;
+
+    // true: all transfers succeed or none are applied; false: each one stands alone
+    private boolean atomic = true;
+
+    public List<TransferRequest> getTransfers() { return transfers; }
+    public void setTransfers(List<TransferRequest> transfers) { this.transfers = transfers; }
+    public boolean isAtomic() { return atomic; }
+    public void setAtomic(boolean atomic) { this.atomic = atomic; }
+}
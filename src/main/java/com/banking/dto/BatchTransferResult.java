@@ -0,0 +1,34 @@
+package com.banking.dto;
+
+public class BatchTransferResult {
+    public enum Status {
+        COMPLETED, FAILED, NOT_APPLIED
+    }
+
+    private int index;
+    private Status status;
+    private Long id;
+    private String transactionId;
+    private String error;
+
+    public BatchTransferResult() {}
+
+    public BatchTransferResult(int index, Status status, Long id, String transactionId, String error) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.transactionId = transactionId;
+        this.error = error;
+    }
+
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getTransactionId() { return transactionId; }
+    public void setTransactionId(String transactionId) { this.transactionId = transactionId; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
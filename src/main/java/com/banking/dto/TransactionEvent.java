@@ -0,0 +1,27 @@
+package com.banking.dto;
+
+import com.banking.model.Transaction;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * What notification channels are told about a transaction, as it was when the
+ * notification was written.
+ */
+public record TransactionEvent(String transactionId,
+                               Transaction.TransactionType transactionType,
+                               Transaction.TransactionStatus status,
+                               BigDecimal amount,
+                               String fromAccountNumber,
+                               String toAccountNumber,
+                               String externalAccountNumber,
+                               String description,
+                               LocalDateTime transactionDate) {
+
+    public static TransactionEvent of(Transaction transaction) {
+        return new TransactionEvent(transaction.getTransactionId(), transaction.getTransactionType(),
+                transaction.getStatus(), transaction.getAmount(), transaction.getFromAccountNumber(),
+                transaction.getToAccountNumber(), transaction.getExternalAccountNumber(),
+                transaction.getDescription(), transaction.getTransactionDate());
+    }
+}
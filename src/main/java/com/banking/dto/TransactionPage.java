@@ -0,0 +1,21 @@
+package com.banking.dto;
+
+import java.util.List;
+
+public class TransactionPage {
+    private List<TransactionView> items;
+    // null on the last page
+    private String nextCursor;
+
+    public TransactionPage() {}
+
+    public TransactionPage(List<TransactionView> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TransactionView> getItems() { return items; }
+    public void setItems(List<TransactionView> items) { this.items = items; }
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,27 @@
+package com.banking.dto;
+
+import com.banking.model.Transaction;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of a transaction for history listings. The account numbers are
+ * selected with the transaction through joins, so serializing a page never goes back
+ * to the database. Serializes to the same JSON as {@link Transaction}.
+ */
+public interface TransactionView {
+    Long getId();
+    String getTransactionId();
+    String getFromAccountNumber();
+    String getToAccountNumber();
+    String getExternalAccountNumber();
+    BigDecimal getAmount();
+    Transaction.TransactionType getTransactionType();
+    Transaction.TransactionStatus getStatus();
+    String getDescription();
+    LocalDateTime getTransactionDate();
+    String getReferenceNumber();
+    String getRemarks();
+    String getBeneficiaryIfsc();
+    Long getClearingBatchId();
+}
@@ -0,0 +1,45 @@
+package com.banking.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+/**
+ * One share of a hot account's balance. Credits to a hot account are added to one
+ * of its slots instead of the account row; the account balance is the row balance
+ * plus the sum of its slots.
+ */
+@Entity
+@Table(name = "account_balance_slots",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"accountId", "slot"}))
+public class AccountBalanceSlot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long accountId;
+
+    @Column(nullable = false)
+    private int slot;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    // Constructors
+    public AccountBalanceSlot() {}
+
+    public AccountBalanceSlot(Long accountId, int slot) {
+        this.accountId = accountId;
+        this.slot = slot;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getAccountId() { return accountId; }
+    public void setAccountId(Long accountId) { this.accountId = accountId; }
+    public int getSlot() { return slot; }
+    public void setSlot(int slot) { this.slot = slot; }
+    public BigDecimal getBalance() { return balance; }
+    public void setBalance(BigDecimal balance) { this.balance = balance; }
+}
@@ -0,0 +1,32 @@
+package com.banking.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Shared counter from which instances reserve blocks of account numbers.
+ */
+@Entity
+@Table(name = "account_number_counter")
+public class AccountNumberCounter {
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    // first number of the next unreserved block, without check digit
+    @Column(nullable = false)
+    private Long nextValue;
+
+    // Constructors
+    public AccountNumberCounter() {}
+
+    public AccountNumberCounter(String name, Long nextValue) {
+        this.name = name;
+        this.nextValue = nextValue;
+    }
+
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public Long getNextValue() { return nextValue; }
+    public void setNextValue(Long nextValue) { this.nextValue = nextValue; }
+}
@@ -0,0 +1,55 @@
+package com.banking.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * An account's ledger balance after all of its postings up to and including
+ * {@code lastPostingId}. A balance is recomputed from the latest snapshot plus the
+ * postings after it.
+ */
+@Entity
+@Table(name = "balance_snapshots",
+       indexes = @Index(name = "idx_balance_snapshots_account", columnList = "accountNumber, lastPostingId"))
+public class BalanceSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 20)
+    private String accountNumber;
+
+    // 0 for an opening balance taken before the account had any postings
+    @Column(nullable = false)
+    private Long lastPostingId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance;
+
+    // posting time of the last posting included
+    @Column(nullable = false)
+    private LocalDateTime asOf;
+
+    // Constructors
+    public BalanceSnapshot() {}
+
+    public BalanceSnapshot(String accountNumber, Long lastPostingId, BigDecimal balance, LocalDateTime asOf) {
+        this.accountNumber = accountNumber;
+        this.lastPostingId = lastPostingId;
+        this.balance = balance;
+        this.asOf = asOf;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getAccountNumber() { return accountNumber; }
+    public void setAccountNumber(String accountNumber) { this.accountNumber = accountNumber; }
+    public Long getLastPostingId() { return lastPostingId; }
+    public void setLastPostingId(Long lastPostingId) { this.lastPostingId = lastPostingId; }
+    public BigDecimal getBalance() { return balance; }
+    public void setBalance(BigDecimal balance) { this.balance = balance; }
+    public LocalDateTime getAsOf() { return asOf; }
+    public void setAsOf(LocalDateTime asOf) { this.asOf = asOf; }
+}
@@ -0,0 +1,87 @@
+package com.banking.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A clearing cycle's file of outbound external transfers, from the moment its
+ * transfers are assigned to it until the clearing house has answered for all of them.
+ */
+@Entity
+@Table(name = "clearing_batches")
+public class ClearingBatch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(unique = true, length = 30)
+    private String reference;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BatchStatus status = BatchStatus.CREATED;
+
+    private String fileName;
+
+    private int transactionCount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    private int settledCount;
+    private int returnedCount;
+
+    // failed attempts to write the file
+    private int fileAttempts;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime submittedAt;
+    private LocalDateTime completedAt;
+
+    public enum BatchStatus {
+        // transfers assigned, file not written yet
+        CREATED,
+        // file written, waiting for the response
+        SUBMITTED,
+        // every transfer settled or returned
+        COMPLETED,
+        // file could not be written; its transfers were returned or moved to a later batch
+        FAILED
+    }
+
+    // Constructors
+    public ClearingBatch() {}
+
+    public ClearingBatch(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getReference() { return reference; }
+    public void setReference(String reference) { this.reference = reference; }
+    public BatchStatus getStatus() { return status; }
+    public void setStatus(BatchStatus status) { this.status = status; }
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public int getTransactionCount() { return transactionCount; }
+    public void setTransactionCount(int transactionCount) { this.transactionCount = transactionCount; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+    public int getSettledCount() { return settledCount; }
+    public void setSettledCount(int settledCount) { this.settledCount = settledCount; }
+    public int getReturnedCount() { return returnedCount; }
+    public void setReturnedCount(int returnedCount) { this.returnedCount = returnedCount; }
+    public int getFileAttempts() { return fileAttempts; }
+    public void setFileAttempts(int fileAttempts) { this.fileAttempts = fileAttempts; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getSubmittedAt() { return submittedAt; }
+    public void setSubmittedAt(LocalDateTime submittedAt) { this.submittedAt = submittedAt; }
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
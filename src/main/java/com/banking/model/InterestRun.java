@@ -0,0 +1,67 @@
+package com.banking.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One interest accrual over all accounts for a period. There is at most one run per
+ * period, so re-running a period resumes it instead of paying interest twice.
+ */
+@Entity
+@Table(name = "interest_runs")
+public class InterestRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // the month interest is paid for, e.g. 2024-05
+    @Column(unique = true, nullable = false, length = 7)
+    private String period;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RunStatus status = RunStatus.RUNNING;
+
+    @Column(nullable = false)
+    private Long maxAccountId;
+
+    private long accountsProcessed;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal interestPaid = BigDecimal.ZERO;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public enum RunStatus {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    // Constructors
+    public InterestRun() {}
+
+    public InterestRun(String period, Long maxAccountId, LocalDateTime startedAt) {
+        this.period = period;
+        this.maxAccountId = maxAccountId;
+        this.startedAt = startedAt;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getPeriod() { return period; }
+    public void setPeriod(String period) { this.period = period; }
+    public RunStatus getStatus() { return status; }
+    public void setStatus(RunStatus status) { this.status = status; }
+    public Long getMaxAccountId() { return maxAccountId; }
+    public void setMaxAccountId(Long maxAccountId) { this.maxAccountId = maxAccountId; }
+    public long getAccountsProcessed() { return accountsProcessed; }
+    public void setAccountsProcessed(long accountsProcessed) { this.accountsProcessed = accountsProcessed; }
+    public BigDecimal getInterestPaid() { return interestPaid; }
+    public void setInterestPaid(BigDecimal interestPaid) { this.interestPaid = interestPaid; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+}
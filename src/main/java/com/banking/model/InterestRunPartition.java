@@ -0,0 +1,67 @@
+package com.banking.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+/**
+ * A range of account ids within an interest run, with its checkpoint. The
+ * checkpoint is advanced in the same database transaction that pays the interest,
+ * so a resumed run continues exactly after the last committed chunk.
+ */
+@Entity
+@Table(name = "interest_run_partitions",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"runId", "fromAccountId"}))
+public class InterestRunPartition {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long runId;
+
+    // inclusive account id range
+    @Column(nullable = false)
+    private Long fromAccountId;
+
+    @Column(nullable = false)
+    private Long toAccountId;
+
+    // last account id whose interest has been committed
+    @Column(nullable = false)
+    private Long lastAccountId;
+
+    private boolean completed;
+
+    private long accountsProcessed;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal interestPaid = BigDecimal.ZERO;
+
+    // Constructors
+    public InterestRunPartition() {}
+
+    public InterestRunPartition(Long runId, Long fromAccountId, Long toAccountId) {
+        this.runId = runId;
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.lastAccountId = fromAccountId - 1;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getRunId() { return runId; }
+    public void setRunId(Long runId) { this.runId = runId; }
+    public Long getFromAccountId() { return fromAccountId; }
+    public void setFromAccountId(Long fromAccountId) { this.fromAccountId = fromAccountId; }
+    public Long getToAccountId() { return toAccountId; }
+    public void setToAccountId(Long toAccountId) { this.toAccountId = toAccountId; }
+    public Long getLastAccountId() { return lastAccountId; }
+    public void setLastAccountId(Long lastAccountId) { this.lastAccountId = lastAccountId; }
+    public boolean isCompleted() { return completed; }
+    public void setCompleted(boolean completed) { this.completed = completed; }
+    public long getAccountsProcessed() { return accountsProcessed; }
+    public void setAccountsProcessed(long accountsProcessed) { this.accountsProcessed = accountsProcessed; }
+    public BigDecimal getInterestPaid() { return interestPaid; }
+    public void setInterestPaid(BigDecimal interestPaid) { this.interestPaid = interestPaid; }
+}
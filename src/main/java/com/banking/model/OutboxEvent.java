@@ -0,0 +1,78 @@
+package com.banking.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A notification waiting to be delivered, written in the same database transaction
+ * as the change it announces. Rows are deleted once every channel has delivered
+ * them; rows that keep failing stay behind as {@code DEAD}.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = @Index(columnList = "status, nextAttemptAt"))
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq")
+    @SequenceGenerator(name = "outbox_seq", sequenceName = "outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, length = 50)
+    private String eventType;
+
+    // JSON of the event as it was when written
+    @Column(nullable = false, length = 2000)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    private int attempts;
+
+    // channels that have already delivered this event, comma separated
+    private String deliveredChannels;
+
+    // also pushed forward while a relay is working on the event
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 500)
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public enum OutboxStatus {
+        PENDING, DEAD
+    }
+
+    // Constructors
+    public OutboxEvent() {}
+
+    public OutboxEvent(String eventType, String payload, LocalDateTime createdAt) {
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = createdAt;
+        this.nextAttemptAt = createdAt;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getEventType() { return eventType; }
+    public void setEventType(String eventType) { this.eventType = eventType; }
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+    public OutboxStatus getStatus() { return status; }
+    public void setStatus(OutboxStatus status) { this.status = status; }
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public String getDeliveredChannels() { return deliveredChannels; }
+    public void setDeliveredChannels(String deliveredChannels) { this.deliveredChannels = deliveredChannels; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,58 @@
+package com.banking.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One leg of a double-entry ledger entry. Every completed transaction writes legs
+ * whose amounts sum to zero; a positive amount increases the account's balance.
+ * Legs against money entering or leaving the bank are booked to system accounts
+ * (see {@code LedgerService}). Postings are never updated or deleted.
+ */
+@Entity
+@Table(name = "postings",
+       indexes = @Index(name = "idx_postings_account", columnList = "accountNumber, id"))
+public class Posting {
+    // Drawn one at a time, so ids follow insert order across instances; snapshots and
+    // balance reads rely on that to know which postings come after a given one
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "postings_seq")
+    @SequenceGenerator(name = "postings_seq", sequenceName = "postings_seq", allocationSize = 1)
+    private Long id;
+
+    // id of the transactions row this leg belongs to
+    @Column(nullable = false)
+    private Long transactionId;
+
+    @Column(nullable = false, length = 20)
+    private String accountNumber;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private LocalDateTime postedAt;
+
+    // Constructors
+    public Posting() {}
+
+    public Posting(Long transactionId, String accountNumber, BigDecimal amount, LocalDateTime postedAt) {
+        this.transactionId = transactionId;
+        this.accountNumber = accountNumber;
+        this.amount = amount;
+        this.postedAt = postedAt;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getTransactionId() { return transactionId; }
+    public void setTransactionId(Long transactionId) { this.transactionId = transactionId; }
+    public String getAccountNumber() { return accountNumber; }
+    public void setAccountNumber(String accountNumber) { this.accountNumber = accountNumber; }
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+    public LocalDateTime getPostedAt() { return postedAt; }
+    public void setPostedAt(LocalDateTime postedAt) { this.postedAt = postedAt; }
+}
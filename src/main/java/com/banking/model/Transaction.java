@@ -6,10 +6,18 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(columnList = "clearingBatchId"),
+        // re-checking recent rows, see XmlReconciliationService; created by V4__transaction_date_index.sql
+        @Index(name = "idx_transactions_date", columnList = "transactionDate"),
+        // account history, one index per side; created by V3__account_history_indexes.sql
+        @Index(name = "idx_transactions_from_account_date", columnList = "from_account_id, transactionDate, id"),
+        @Index(name = "idx_transactions_to_account_date", columnList = "to_account_id, transactionDate, id")
+})
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false, length = 30)
@@ -48,20 +56,23 @@ public class Transaction {
     private String referenceNumber;
     private String remarks;
 
+    // beneficiary bank branch of an external transfer
+    @Column(length = 11)
+    private String beneficiaryIfsc;
+
+    // clearing batch an external transfer was submitted in
+    private Long clearingBatchId;
+
     @PrePersist
     protected void onCreate() {
         if (transactionDate == null) {
             transactionDate = LocalDateTime.now();
         }
         if (transactionId == null) {
-            transactionId = generateTransactionId();
+            transactionId = TransactionIdGenerator.next();
         }
     }
 
-    private String generateTransactionId() {
-        return "TXN" + System.currentTimeMillis() + (int)(Math.random() * 1000);
-    }
-
     public enum TransactionType {
         DEPOSIT, WITHDRAWAL, TRANSFER, BILL_PAYMENT, RECHARGE, INTEREST
     }
@@ -116,6 +127,10 @@ public class Transaction {
     public void setReferenceNumber(String referenceNumber) { this.referenceNumber = referenceNumber; }
     public String getRemarks() { return remarks; }
     public void setRemarks(String remarks) { this.remarks = remarks; }
+    public String getBeneficiaryIfsc() { return beneficiaryIfsc; }
+    public void setBeneficiaryIfsc(String beneficiaryIfsc) { this.beneficiaryIfsc = beneficiaryIfsc; }
+    public Long getClearingBatchId() { return clearingBatchId; }
+    public void setClearingBatchId(Long clearingBatchId) { this.clearingBatchId = clearingBatchId; }
     
     // Helper methods for JSON serialization (to expose account numbers)
     public String getFromAccountNumber() {
@@ -0,0 +1,68 @@
+package com.banking.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates business transaction ids without a database round trip. Each id packs
+ * the time, the node it was generated on and a per-node counter:
+ *
+ * <pre>
+ * 41 bits  milliseconds since 2024-01-01 UTC
+ * 10 bits  node id (0-1023, {@code banking.node-id})
+ * 12 bits  counter within the millisecond
+ * </pre>
+ *
+ * Ids are unique as long as every running instance has its own node id, and
+ * strictly increasing on a node: if the clock goes backwards or more than 4096 ids
+ * are needed in one millisecond, generation continues from the last id instead of
+ * repeating one.
+ */
+public final class TransactionIdGenerator {
+
+    public static final int MAX_NODE_ID = 1023;
+
+    private static final long EPOCH = 1704067200000L;
+    private static final int NODE_BITS = 10;
+    private static final int COUNTER_BITS = 12;
+
+    // (milliseconds << COUNTER_BITS) | counter of the last id handed out
+    private static final AtomicLong LAST = new AtomicLong();
+    private static volatile long nodeId = defaultNodeId();
+
+    private TransactionIdGenerator() {}
+
+    public static void setNodeId(int id) {
+        if (id < 0 || id > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        nodeId = id;
+    }
+
+    public static long getNodeId() {
+        return nodeId;
+    }
+
+    public static long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH) << COUNTER_BITS;
+        long last;
+        long next;
+        do {
+            last = LAST.get();
+            // a full counter carries into the millisecond bits
+            next = Math.max(now, last + 1);
+        } while (!LAST.compareAndSet(last, next));
+        long millis = next >>> COUNTER_BITS;
+        long counter = next & ((1L << COUNTER_BITS) - 1);
+        return (millis << (NODE_BITS + COUNTER_BITS)) | (nodeId << COUNTER_BITS) | counter;
+    }
+
+    public static String next() {
+        return "TXN" + nextId();
+    }
+
+    // Used until a node id is configured; only unique across hosts by chance
+    private static long defaultNodeId() {
+        String host = System.getenv().getOrDefault("HOSTNAME", "localhost");
+        return Math.floorMod((host + ProcessHandle.current().pid()).hashCode(), MAX_NODE_ID + 1);
+    }
+}
@@ -0,0 +1,44 @@
+package com.banking.repository;
+
+import com.banking.model.AccountBalanceSlot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface AccountBalanceSlotRepository extends JpaRepository<AccountBalanceSlot, Long> {
+    long countByAccountId(Long accountId);
+
+    @Modifying
+    @Query("UPDATE AccountBalanceSlot s SET s.balance = s.balance + :amount " +
+           "WHERE s.accountId = :accountId AND s.slot = :slot")
+    int credit(@Param("accountId") Long accountId, @Param("slot") int slot, @Param("amount") BigDecimal amount);
+
+    @Query("SELECT COALESCE(SUM(s.balance), 0) FROM AccountBalanceSlot s WHERE s.accountId = :accountId")
+    BigDecimal sumBalance(@Param("accountId") Long accountId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AccountBalanceSlot s WHERE s.accountId = :accountId ORDER BY s.slot")
+    List<AccountBalanceSlot> findByAccountIdForUpdate(@Param("accountId") Long accountId);
+
+    // row balance plus slots, read in one statement so a concurrent fold is never half seen
+    @Query("SELECT a.balance + COALESCE((SELECT SUM(s.balance) FROM AccountBalanceSlot s WHERE s.accountId = a.id), 0) " +
+           "FROM Account a WHERE a.accountNumber = :accountNumber")
+    BigDecimal totalBalance(@Param("accountNumber") String accountNumber);
+
+    // account number and slot count of every hot account
+    @Query("SELECT a.accountNumber, COUNT(s) FROM AccountBalanceSlot s, Account a " +
+           "WHERE s.accountId = a.id GROUP BY a.accountNumber")
+    List<Object[]> countSlotsByAccountNumber();
+
+    // hot accounts whose slots hold credits not yet folded into the account row
+    @Query("SELECT DISTINCT a.accountNumber FROM AccountBalanceSlot s, Account a " +
+           "WHERE s.accountId = a.id AND s.balance <> 0")
+    List<String> findAccountNumbersWithUnfoldedCredits();
+}
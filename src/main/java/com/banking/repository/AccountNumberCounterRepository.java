@@ -0,0 +1,17 @@
+package com.banking.repository;
+
+import com.banking.model.AccountNumberCounter;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+
+@Repository
+public interface AccountNumberCounterRepository extends JpaRepository<AccountNumberCounter, String> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM AccountNumberCounter c WHERE c.name = :name")
+    Optional<AccountNumberCounter> findByNameForUpdate(@Param("name") String name);
+}
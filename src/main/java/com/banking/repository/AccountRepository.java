@@ -2,8 +2,14 @@ package com.banking.repository;
 
 import com.banking.model.Account;
 import com.banking.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,6 +18,25 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findByAccountNumber(String accountNumber);
     List<Account> findByUser(User user);
     List<Account> findByUserAndAccountType(User user, Account.AccountType accountType);
-    boolean existsByAccountNumber(String accountNumber);
+
+    @Query("SELECT a.accountNumber FROM Account a JOIN a.user u WHERE u.username = :username")
+    List<String> findAccountNumbersByUsername(@Param("username") String username);
+
+    // {accountNumber, owner email}
+    @Query("SELECT a.accountNumber, u.email FROM Account a JOIN a.user u WHERE a.accountNumber IN :accountNumbers")
+    List<Object[]> findOwnerEmails(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    @Query("SELECT MIN(a.id), MAX(a.id) FROM Account a")
+    List<Object[]> findIdRange();
+
+    // account numbers in an id range, in id order, as {id, accountNumber}
+    @Query("SELECT a.id, a.accountNumber FROM Account a " +
+           "WHERE a.id > :afterId AND a.id <= :toId AND a.accountType IN :types ORDER BY a.id")
+    List<Object[]> findIdsAfter(@Param("afterId") Long afterId, @Param("toId") Long toId,
+                                @Param("types") Collection<Account.AccountType> types, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.accountNumber IN :accountNumbers ORDER BY a.accountNumber")
+    List<Account> findByAccountNumberInForUpdate(@Param("accountNumbers") Collection<String> accountNumbers);
 }
 
@@ -0,0 +1,23 @@
+package com.banking.repository;
+
+import com.banking.model.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+    Optional<BalanceSnapshot> findTopByAccountNumberOrderByLastPostingIdDesc(String accountNumber);
+
+    Optional<BalanceSnapshot> findTopByAccountNumberAndAsOfLessThanEqualOrderByLastPostingIdDesc(
+            String accountNumber, LocalDateTime asOf);
+
+    // accounts that have neither postings nor a snapshot yet
+    @Query("SELECT a.accountNumber FROM Account a WHERE " +
+           "NOT EXISTS (SELECT p FROM Posting p WHERE p.accountNumber = a.accountNumber) AND " +
+           "NOT EXISTS (SELECT s FROM BalanceSnapshot s WHERE s.accountNumber = a.accountNumber)")
+    List<String> findAccountNumbersWithoutLedger();
+}
@@ -0,0 +1,14 @@
+package com.banking.repository;
+
+import com.banking.model.ClearingBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ClearingBatchRepository extends JpaRepository<ClearingBatch, Long> {
+    Optional<ClearingBatch> findByReference(String reference);
+    List<ClearingBatch> findByStatusOrderById(ClearingBatch.BatchStatus status);
+    List<ClearingBatch> findTop50ByOrderByIdDesc();
+}
@@ -0,0 +1,20 @@
+package com.banking.repository;
+
+import com.banking.model.InterestRunPartition;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InterestRunPartitionRepository extends JpaRepository<InterestRunPartition, Long> {
+    List<InterestRunPartition> findByRunIdOrderByFromAccountId(Long runId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM InterestRunPartition p WHERE p.id = :id")
+    Optional<InterestRunPartition> findByIdForUpdate(@Param("id") Long id);
+}
@@ -0,0 +1,14 @@
+package com.banking.repository;
+
+import com.banking.model.InterestRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InterestRunRepository extends JpaRepository<InterestRun, Long> {
+    Optional<InterestRun> findByPeriod(String period);
+    List<InterestRun> findByStatus(InterestRun.RunStatus status);
+    List<InterestRun> findTop12ByOrderByIdDesc();
+}
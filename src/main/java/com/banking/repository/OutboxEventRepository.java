@@ -0,0 +1,24 @@
+package com.banking.repository;
+
+import com.banking.model.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM OutboxEvent e WHERE e.status = :status AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<OutboxEvent> findDueForUpdate(@Param("status") OutboxEvent.OutboxStatus status,
+                                       @Param("now") LocalDateTime now, Pageable pageable);
+
+    List<OutboxEvent> findByStatusOrderById(OutboxEvent.OutboxStatus status, Pageable pageable);
+
+    long countByStatus(OutboxEvent.OutboxStatus status);
+}
@@ -0,0 +1,44 @@
+package com.banking.repository;
+
+import com.banking.model.Posting;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PostingRepository extends JpaRepository<Posting, Long> {
+    List<Posting> findByTransactionIdOrderById(Long transactionId);
+
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Posting p " +
+           "WHERE p.accountNumber = :accountNumber AND p.id > :afterId")
+    BigDecimal sumAfter(@Param("accountNumber") String accountNumber, @Param("afterId") Long afterId);
+
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Posting p " +
+           "WHERE p.accountNumber = :accountNumber AND p.id > :afterId AND p.postedAt <= :until")
+    BigDecimal sumAfterUntil(@Param("accountNumber") String accountNumber, @Param("afterId") Long afterId,
+                             @Param("until") LocalDateTime until);
+
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Posting p " +
+           "WHERE p.accountNumber = :accountNumber AND p.id > :afterId AND p.id <= :upToId")
+    BigDecimal sumBetween(@Param("accountNumber") String accountNumber, @Param("afterId") Long afterId,
+                          @Param("upToId") Long upToId);
+
+    // newest posting of the account written before the given time, as {id, postedAt}
+    @Query("SELECT p.id, p.postedAt FROM Posting p WHERE p.id = " +
+           "(SELECT MAX(q.id) FROM Posting q WHERE q.accountNumber = :accountNumber AND q.postedAt < :before)")
+    List<Object[]> findLastBefore(@Param("accountNumber") String accountNumber, @Param("before") LocalDateTime before);
+
+    // accounts with postings after the given id, with how many
+    @Query("SELECT p.accountNumber, COUNT(p) FROM Posting p WHERE p.id > :afterId GROUP BY p.accountNumber")
+    List<Object[]> countByAccountAfter(@Param("afterId") Long afterId);
+
+    @Query("SELECT COUNT(p) FROM Posting p WHERE p.accountNumber = :accountNumber AND p.id > :afterId")
+    long countAfter(@Param("accountNumber") String accountNumber, @Param("afterId") Long afterId);
+
+    @Query("SELECT MAX(p.id) FROM Posting p")
+    Long findMaxId();
+}
@@ -1,12 +1,17 @@
 package com.banking.repository;
 
+import com.banking.dto.TransactionView;
 import com.banking.model.Account;
 import com.banking.model.Transaction;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,14 +22,110 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     List<Transaction> findByTransactionType(Transaction.TransactionType type);
     List<Transaction> findByStatus(Transaction.TransactionStatus status);
     
-    @Query("SELECT t FROM Transaction t WHERE (t.fromAccount = :account OR t.toAccount = :account) " +
-           "AND t.transactionDate BETWEEN :startDate AND :endDate ORDER BY t.transactionDate DESC")
-    List<Transaction> findByAccountAndDateRange(@Param("account") Account account,
-                                                 @Param("startDate") LocalDateTime startDate,
-                                                 @Param("endDate") LocalDateTime endDate);
-    
-    @Query("SELECT t FROM Transaction t WHERE (t.fromAccount = :account OR t.toAccount = :account) " +
-           "ORDER BY t.transactionDate DESC")
-    List<Transaction> findByAccountOrderByDateDesc(@Param("account") Account account);
+    // History rows are read as TransactionViews, with both account numbers joined in
+    String HISTORY_COLUMNS =
+            "SELECT t.id AS id, t.transaction_id AS transactionId, fa.account_number AS fromAccountNumber, " +
+            "ta.account_number AS toAccountNumber, t.external_account_number AS externalAccountNumber, " +
+            "t.amount AS amount, t.transaction_type AS transactionType, t.status AS status, " +
+            "t.description AS description, t.transaction_date AS transactionDate, " +
+            "t.reference_number AS referenceNumber, t.remarks AS remarks, " +
+            "t.beneficiary_ifsc AS beneficiaryIfsc, t.clearing_batch_id AS clearingBatchId " +
+            "FROM transactions t LEFT JOIN accounts fa ON fa.id = t.from_account_id " +
+            "LEFT JOIN accounts ta ON ta.id = t.to_account_id ";
+
+    // An account's history, newest first. Written as debits UNION ALL credits rather
+    // than an OR so that each branch seeks on its own (account, transaction_date, id)
+    // index; the credit branch skips transfers to self, which the debit branch already
+    // returned. TransactionRepositoryQueryPlanTest checks that neither branch scans the table.
+    String HISTORY_SQL =
+            HISTORY_COLUMNS + "WHERE t.from_account_id = :accountId " +
+            "UNION ALL " +
+            HISTORY_COLUMNS + "WHERE t.to_account_id = :accountId " +
+            "AND (t.from_account_id IS NULL OR t.from_account_id <> :accountId) " +
+            "ORDER BY transactionDate DESC, id DESC";
+
+    String HISTORY_IN_RANGE_SQL =
+            HISTORY_COLUMNS + "WHERE t.from_account_id = :accountId " +
+            "AND t.transaction_date BETWEEN :startDate AND :endDate " +
+            "UNION ALL " +
+            HISTORY_COLUMNS + "WHERE t.to_account_id = :accountId " +
+            "AND t.transaction_date BETWEEN :startDate AND :endDate " +
+            "AND (t.from_account_id IS NULL OR t.from_account_id <> :accountId) " +
+            "ORDER BY transactionDate DESC, id DESC";
+
+    @Query(value = HISTORY_IN_RANGE_SQL, nativeQuery = true)
+    List<TransactionView> findByAccountAndDateRange(@Param("accountId") Long accountId,
+                                                    @Param("startDate") LocalDateTime startDate,
+                                                    @Param("endDate") LocalDateTime endDate);
+
+    @Query(value = HISTORY_SQL, nativeQuery = true)
+    List<TransactionView> findByAccountOrderByDateDesc(@Param("accountId") Long accountId);
+
+    // the same columns for JPQL queries
+    String VIEW_COLUMNS =
+            "SELECT t.id AS id, t.transactionId AS transactionId, fa.accountNumber AS fromAccountNumber, " +
+            "ta.accountNumber AS toAccountNumber, t.externalAccountNumber AS externalAccountNumber, " +
+            "t.amount AS amount, t.transactionType AS transactionType, t.status AS status, " +
+            "t.description AS description, t.transactionDate AS transactionDate, " +
+            "t.referenceNumber AS referenceNumber, t.remarks AS remarks, " +
+            "t.beneficiaryIfsc AS beneficiaryIfsc, t.clearingBatchId AS clearingBatchId " +
+            "FROM Transaction t LEFT JOIN t.fromAccount fa LEFT JOIN t.toAccount ta ";
+
+    // One page of an account's history, newest first, strictly before the (date, id)
+    // position. Debits and credits are paged separately so each query seeks on its own
+    // (account, transactionDate, id) index instead of scanning an OR.
+    @Query(VIEW_COLUMNS + "WHERE t.fromAccount = :account AND t.transactionDate >= :startDate " +
+           "AND (t.transactionDate < :beforeDate OR (t.transactionDate = :beforeDate AND t.id < :beforeId)) " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<TransactionView> findPageFromAccount(@Param("account") Account account,
+                                              @Param("startDate") LocalDateTime startDate,
+                                              @Param("beforeDate") LocalDateTime beforeDate,
+                                              @Param("beforeId") Long beforeId,
+                                              Pageable pageable);
+
+    @Query(VIEW_COLUMNS + "WHERE t.toAccount = :account AND t.transactionDate >= :startDate " +
+           "AND (t.transactionDate < :beforeDate OR (t.transactionDate = :beforeDate AND t.id < :beforeId)) " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<TransactionView> findPageToAccount(@Param("account") Account account,
+                                            @Param("startDate") LocalDateTime startDate,
+                                            @Param("beforeDate") LocalDateTime beforeDate,
+                                            @Param("beforeId") Long beforeId,
+                                            Pageable pageable);
+
+    @Query("SELECT t FROM Transaction t LEFT JOIN FETCH t.fromAccount LEFT JOIN FETCH t.toAccount " +
+           "WHERE t.id > :id ORDER BY t.id")
+    List<Transaction> findWithAccountsAfterId(@Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT t FROM Transaction t LEFT JOIN FETCH t.fromAccount LEFT JOIN FETCH t.toAccount " +
+           "WHERE t.id <= :id AND t.transactionDate >= :since ORDER BY t.id")
+    List<Transaction> findWithAccountsUpToIdSince(@Param("id") Long id, @Param("since") LocalDateTime since);
+
+    @Query("SELECT MIN(t.transactionDate) FROM Transaction t WHERE t.id > :id")
+    LocalDateTime findEarliestDateAfterId(@Param("id") Long id);
+
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.toAccount " +
+           "WHERE t.status = :status AND t.transactionType = :type ORDER BY t.id")
+    List<Transaction> findWithToAccountByStatusAndType(@Param("status") Transaction.TransactionStatus status,
+                                                       @Param("type") Transaction.TransactionType type);
+
+    // external transfers not yet assigned to a clearing batch, locked so that two
+    // instances cannot submit the same transfer
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.status = :status AND t.externalAccountNumber IS NOT NULL " +
+           "AND t.clearingBatchId IS NULL ORDER BY t.id")
+    List<Transaction> findUnbatchedExternalTransfersForUpdate(@Param("status") Transaction.TransactionStatus status,
+                                                              Pageable pageable);
+
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.fromAccount WHERE t.clearingBatchId = :batchId ORDER BY t.id")
+    List<Transaction> findWithFromAccountByClearingBatchId(@Param("batchId") Long batchId);
+
+    long countByClearingBatchIdAndStatus(Long clearingBatchId, Transaction.TransactionStatus status);
+
+    @Query("SELECT MAX(t.id) FROM Transaction t")
+    Long findMaxId();
+
+    @Query("SELECT t FROM Transaction t LEFT JOIN FETCH t.fromAccount LEFT JOIN FETCH t.toAccount " +
+           "WHERE t.transactionId IN :transactionIds")
+    List<Transaction> findWithAccountsByTransactionIdIn(@Param("transactionIds") Collection<String> transactionIds);
 }
 
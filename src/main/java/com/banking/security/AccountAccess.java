@@ -0,0 +1,82 @@
+package com.banking.security;
+
+import com.banking.repository.AccountRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides whether the current user owns an account, for use in method security
+ * expressions such as {@code @PreAuthorize("@accountAccess.owns(#accountNumber)")}.
+ * The account numbers of recently active users are cached, so the check is a map
+ * lookup; a user's entry is evicted when an account is opened for them.
+ */
+@Component("accountAccess")
+public class AccountAccess {
+
+    private final AccountRepository accountRepository;
+    private final Map<String, Set<String>> ownedAccounts;
+    // bumped on every eviction, so a load that raced with one is not cached
+    private long evictions;
+
+    public AccountAccess(AccountRepository accountRepository,
+                         @Value("${banking.security.ownership-cache-size:10000}") int cacheSize) {
+        this.accountRepository = accountRepository;
+        this.ownedAccounts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Set<String>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public boolean owns(String accountNumber) {
+        String username = currentUsername();
+        return username != null && accountNumber != null && ownedAccounts(username).contains(accountNumber);
+    }
+
+    public boolean ownsAll(Collection<String> accountNumbers) {
+        String username = currentUsername();
+        if (username == null || accountNumbers == null) {
+            return false;
+        }
+        Set<String> owned = ownedAccounts(username);
+        return accountNumbers.stream().allMatch(accountNumber -> accountNumber != null && owned.contains(accountNumber));
+    }
+
+    public void evict(String username) {
+        synchronized (ownedAccounts) {
+            ownedAccounts.remove(username);
+            evictions++;
+        }
+    }
+
+    private Set<String> ownedAccounts(String username) {
+        long seen;
+        synchronized (ownedAccounts) {
+            Set<String> cached = ownedAccounts.get(username);
+            if (cached != null) {
+                return cached;
+            }
+            seen = evictions;
+        }
+        Set<String> loaded = Set.copyOf(accountRepository.findAccountNumbersByUsername(username));
+        synchronized (ownedAccounts) {
+            if (evictions == seen) {
+                ownedAccounts.put(username, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+}
@@ -0,0 +1,81 @@
+package com.banking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped in-process locks over account numbers. Every caller takes the stripes it
+ * needs in ascending stripe order, so two transfers in opposite directions can
+ * never wait on each other in a cycle. Stripes shared by several accounts are taken
+ * once.
+ */
+@Component
+public class AccountLockManager {
+
+    private final ReentrantLock[] stripes;
+
+    @Value("${banking.transfers.lock-timeout-ms:2000}")
+    private long lockTimeoutMs;
+
+    public AccountLockManager(@Value("${banking.transfers.lock-stripes:1024}") int stripeCount) {
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the stripes of all given accounts in canonical order.
+     *
+     * @return a handle that releases them, or {@code null} if a stripe could not be
+     *         taken within the lock timeout (nothing is left held in that case)
+     */
+    public Locked tryLock(Collection<String> accountNumbers) throws InterruptedException {
+        TreeSet<Integer> ordered = new TreeSet<>();
+        for (String accountNumber : accountNumbers) {
+            if (accountNumber != null) {
+                ordered.add(stripeOf(accountNumber));
+            }
+        }
+        int[] held = new int[ordered.size()];
+        int count = 0;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lockTimeoutMs);
+        for (int stripe : ordered) {
+            if (!stripes[stripe].tryLock(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                release(held, count);
+                return null;
+            }
+            held[count++] = stripe;
+        }
+        return new Locked(held);
+    }
+
+    private int stripeOf(String accountNumber) {
+        int hash = accountNumber.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    private void release(int[] held, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[held[i]].unlock();
+        }
+    }
+
+    public class Locked implements AutoCloseable {
+        private final int[] held;
+
+        private Locked(int[] held) {
+            this.held = held;
+        }
+
+        @Override
+        public void close() {
+            release(held, held.length);
+        }
+    }
+}
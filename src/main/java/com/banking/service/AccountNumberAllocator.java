@@ -0,0 +1,133 @@
+package com.banking.service;
+
+import com.banking.model.AccountNumberCounter;
+import com.banking.repository.AccountNumberCounterRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out new account numbers without checking the accounts table. Each instance
+ * reserves a block of numbers from a shared database counter and serves it from
+ * memory, so allocating a number costs nothing until the block runs out.
+ *
+ * <p>A number is a 9-digit serial followed by a Luhn check digit. Serials start at
+ * 190000000, above every randomly generated legacy number (1000000000-1899999999),
+ * so the two ranges cannot collide. Numbers left in a block when the application
+ * stops are skipped.
+ */
+@Service
+public class AccountNumberAllocator {
+
+    private static final String COUNTER = "account-number";
+    private static final long FIRST_SERIAL = 190_000_000L;
+    private static final long LAST_SERIAL = 999_999_999L;
+    private static final long FIRST_ALLOCATED_NUMBER = FIRST_SERIAL * 10;
+
+    private final AccountNumberCounterRepository accountNumberCounterRepository;
+    private final TransactionTemplate requiresNew;
+
+    @Value("${banking.accounts.number-block-size:100}")
+    private int blockSize;
+
+    private volatile Block block = new Block(0, 0);
+
+    public AccountNumberAllocator(AccountNumberCounterRepository accountNumberCounterRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.accountNumberCounterRepository = accountNumberCounterRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void createCounter() {
+        if (accountNumberCounterRepository.existsById(COUNTER)) {
+            return;
+        }
+        try {
+            accountNumberCounterRepository.save(new AccountNumberCounter(COUNTER, FIRST_SERIAL));
+        } catch (DataIntegrityViolationException e) {
+            // created by another instance at the same time
+        }
+    }
+
+    public String next() {
+        while (true) {
+            Block current = block;
+            long serial = current.next.getAndIncrement();
+            if (serial < current.end) {
+                return withCheckDigit(serial);
+            }
+            synchronized (this) {
+                if (block == current) {
+                    block = reserveBlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the number could have been issued by this bank. Legacy random numbers
+     * carry no check digit and are accepted as long as they are 10 digits.
+     */
+    public static boolean isValid(String accountNumber) {
+        if (accountNumber == null || accountNumber.length() != 10 || !accountNumber.chars().allMatch(Character::isDigit)) {
+            return false;
+        }
+        if (Long.parseLong(accountNumber) < FIRST_ALLOCATED_NUMBER) {
+            return true;
+        }
+        long serial = Long.parseLong(accountNumber.substring(0, 9));
+        return withCheckDigit(serial).equals(accountNumber);
+    }
+
+    // Reserves the next block in its own short transaction, so the counter row is not
+    // held locked for the rest of the caller's transaction
+    private Block reserveBlock() {
+        long start = requiresNew.execute(status -> {
+            AccountNumberCounter counter = accountNumberCounterRepository.findByNameForUpdate(COUNTER)
+                    .orElseThrow(() -> new IllegalStateException("Account number counter missing"));
+            long first = counter.getNextValue();
+            if (first + blockSize - 1 > LAST_SERIAL) {
+                throw new RuntimeException("Account numbers exhausted");
+            }
+            counter.setNextValue(first + blockSize);
+            accountNumberCounterRepository.save(counter);
+            return first;
+        });
+        return new Block(start, start + blockSize);
+    }
+
+    private static String withCheckDigit(long serial) {
+        String digits = Long.toString(serial);
+        int sum = 0;
+        // Luhn: double every second digit from the right, starting with the rightmost
+        for (int i = digits.length() - 1, position = 0; i >= 0; i--, position++) {
+            int digit = digits.charAt(i) - '0';
+            if (position % 2 == 0) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+
+    private static class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
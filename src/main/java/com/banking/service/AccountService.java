@@ -4,22 +4,36 @@ import com.banking.model.Account;
 import com.banking.model.User;
 import com.banking.repository.AccountRepository;
 import com.banking.repository.UserRepository;
+import com.banking.security.AccountAccess;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
 
 @Service
 public class AccountService {
 
     private final AccountRepository accountRepository;
     private final UserRepository userRepository;
+    private final HotAccountService hotAccountService;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final AccountAccess accountAccess;
 
-    public AccountService(AccountRepository accountRepository, UserRepository userRepository) {
+    public AccountService(AccountRepository accountRepository, UserRepository userRepository,
+                          HotAccountService hotAccountService, AccountNumberAllocator accountNumberAllocator,
+                          AccountAccess accountAccess) {
         this.accountRepository = accountRepository;
         this.userRepository = userRepository;
+        this.hotAccountService = hotAccountService;
+        this.accountNumberAllocator = accountNumberAllocator;
+        this.accountAccess = accountAccess;
     }
 
     @Transactional
@@ -27,20 +41,23 @@ public class AccountService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        String accountNumber = generateAccountNumber();
-        while (accountRepository.existsByAccountNumber(accountNumber)) {
-            accountNumber = generateAccountNumber();
-        }
-
         Account account = new Account();
-        account.setAccountNumber(accountNumber);
+        account.setAccountNumber(accountNumberAllocator.next());
         account.setAccountName(accountName != null && !accountName.trim().isEmpty() ? accountName.trim() : null);
         account.setAccountType(accountType);
         account.setBalance(BigDecimal.ZERO);
         account.setUser(user);
         account.setIfscCode("BANK0001234");
 
-        return accountRepository.save(account);
+        Account saved = accountRepository.save(account);
+        // forget the owner's cached accounts once the new one is visible to other requests
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                accountAccess.evict(user.getUsername());
+            }
+        });
+        return saved;
     }
 
     public List<Account> getUserAccounts(Long userId) {
@@ -54,26 +71,112 @@ public class AccountService {
                 .orElseThrow(() -> new RuntimeException("Account not found"));
     }
 
+    /**
+     * Loads the accounts with row locks in one query, taken in account-number order
+     * so that transactions locking overlapping accounts cannot deadlock each other.
+     * Unknown account numbers are absent from the result.
+     */
+    @Transactional
+    public Map<String, Account> lockAccounts(Collection<String> accountNumbers) {
+        Map<String, Account> accounts = new HashMap<>();
+        for (Account account : accountRepository.findByAccountNumberInForUpdate(accountNumbers)) {
+            accounts.put(account.getAccountNumber(), account);
+        }
+        return accounts;
+    }
+
+    /**
+     * Like {@link #lockAccounts}, but fails if any account does not exist.
+     */
+    @Transactional
+    public Map<String, Account> lockExistingAccounts(Collection<String> accountNumbers) {
+        Map<String, Account> accounts = lockAccounts(accountNumbers);
+        if (!accounts.keySet().containsAll(accountNumbers)) {
+            throw new RuntimeException("Account not found");
+        }
+        return accounts;
+    }
+
+    /**
+     * The accounts that must be locked to debit and credit the given accounts.
+     * Debited accounts are always locked; credits to hot accounts go to a balance
+     * slot and do not need the account lock.
+     */
+    public List<String> accountsToLock(Collection<String> debited, Collection<String> credited) {
+        List<String> locked = new ArrayList<>(debited);
+        for (String accountNumber : credited) {
+            if (!hotAccountService.isHot(accountNumber) && !locked.contains(accountNumber)) {
+                locked.add(accountNumber);
+            }
+        }
+        return locked;
+    }
+
+    /**
+     * Locks the accounts in {@code locked} (see {@link #accountsToLock}) and loads the
+     * other given accounts without a lock. Unknown account numbers are absent from
+     * the result.
+     */
+    @Transactional
+    public Map<String, Account> loadForBalanceChange(Collection<String> locked, Collection<String> accountNumbers) {
+        Map<String, Account> accounts = lockAccounts(locked);
+        for (String accountNumber : accountNumbers) {
+            if (!accounts.containsKey(accountNumber) && !locked.contains(accountNumber)) {
+                accountRepository.findByAccountNumber(accountNumber)
+                        .ifPresent(account -> accounts.put(accountNumber, account));
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Like {@link #loadForBalanceChange}, but fails if any account does not exist.
+     */
+    @Transactional
+    public Map<String, Account> lockForBalanceChange(Collection<String> locked, Collection<String> accountNumbers) {
+        Map<String, Account> accounts = loadForBalanceChange(locked, accountNumbers);
+        if (!accounts.keySet().containsAll(accountNumbers)) {
+            throw new RuntimeException("Account not found");
+        }
+        return accounts;
+    }
+
+    /**
+     * Whether a locked account can be debited by {@code amount}. A hot account that
+     * is short on its row balance has its slots folded in first.
+     */
+    @Transactional
+    public boolean hasSufficientBalance(Account account, BigDecimal amount) {
+        if (account.getBalance().compareTo(amount) >= 0) {
+            return true;
+        }
+        if (hotAccountService.isHot(account.getAccountNumber())) {
+            hotAccountService.fold(account);
+        }
+        return account.getBalance().compareTo(amount) >= 0;
+    }
+
     public Account getAccountById(Long accountId) {
         return accountRepository.findById(accountId)
                 .orElseThrow(() -> new RuntimeException("Account not found"));
     }
 
     public BigDecimal getAccountBalance(String accountNumber) {
+        if (hotAccountService.isHot(accountNumber)) {
+            return hotAccountService.getBalance(accountNumber);
+        }
         Account account = getAccountByNumber(accountNumber);
         return account.getBalance();
     }
 
     @Transactional
     public Account updateBalance(Account account, BigDecimal amount) {
+        if (amount.signum() > 0 && hotAccountService.isHot(account.getAccountNumber())) {
+            hotAccountService.credit(account, amount);
+            return account;
+        }
         account.setBalance(account.getBalance().add(amount));
         return accountRepository.save(account);
     }
-
-    private String generateAccountNumber() {
-        Random random = new Random();
-        long number = 1000000000L + random.nextInt(900000000);
-        return String.valueOf(number);
-    }
 }
 
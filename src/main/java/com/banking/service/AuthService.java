@@ -17,7 +17,6 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
 
 @Service
 public class AuthService {
@@ -27,15 +26,20 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider tokenProvider;
+    private final LedgerService ledgerService;
+    private final AccountNumberAllocator accountNumberAllocator;
 
     public AuthService(UserRepository userRepository, AccountRepository accountRepository,
                       PasswordEncoder passwordEncoder, AuthenticationManager authenticationManager, 
-                      JwtTokenProvider tokenProvider) {
+                      JwtTokenProvider tokenProvider, LedgerService ledgerService,
+                      AccountNumberAllocator accountNumberAllocator) {
         this.userRepository = userRepository;
         this.accountRepository = accountRepository;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
         this.tokenProvider = tokenProvider;
+        this.ledgerService = ledgerService;
+        this.accountNumberAllocator = accountNumberAllocator;
     }
 
     @Transactional
@@ -69,37 +73,25 @@ public class AuthService {
     private void createDefaultAccounts(User user) {
         // Create Savings Account
         Account savingsAccount = new Account();
-        savingsAccount.setAccountNumber(generateAccountNumber());
+        savingsAccount.setAccountNumber(accountNumberAllocator.next());
         savingsAccount.setAccountName("My Savings Account");
         savingsAccount.setAccountType(Account.AccountType.SAVINGS);
         savingsAccount.setBalance(new BigDecimal("10000.00")); // Initial balance
         savingsAccount.setUser(user);
         savingsAccount.setIfscCode("BANK0001234");
         accountRepository.save(savingsAccount);
+        ledgerService.recordOpeningBalance(savingsAccount);
         
         // Create Current Account
         Account currentAccount = new Account();
-        currentAccount.setAccountNumber(generateAccountNumber());
+        currentAccount.setAccountNumber(accountNumberAllocator.next());
         currentAccount.setAccountName("My Current Account");
         currentAccount.setAccountType(Account.AccountType.CURRENT);
         currentAccount.setBalance(new BigDecimal("5000.00")); // Initial balance
         currentAccount.setUser(user);
         currentAccount.setIfscCode("BANK0001234");
         accountRepository.save(currentAccount);
-    }
-    
-    private String generateAccountNumber() {
-        Random random = new Random();
-        long number = 1000000000L + random.nextInt(900000000);
-        String accountNumber = String.valueOf(number);
-        
-        // Ensure uniqueness
-        while (accountRepository.existsByAccountNumber(accountNumber)) {
-            number = 1000000000L + random.nextInt(900000000);
-            accountNumber = String.valueOf(number);
-        }
-        
-        return accountNumber;
+        ledgerService.recordOpeningBalance(currentAccount);
     }
 
     public Map<String, Object> login(String username, String password) {
@@ -0,0 +1,436 @@
+package com.banking.service;
+
+import com.banking.model.ClearingBatch;
+import com.banking.model.Transaction;
+import com.banking.repository.ClearingBatchRepository;
+import com.banking.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outbound clearing for transfers to other banks. A transfer request only debits the
+ * account and records the transfer as {@code PENDING}; each clearing cycle collects
+ * the pending transfers into NEFT-style batch files in the outbound directory, which
+ * stands in for the clearing house. Response files dropped into the inbound directory
+ * settle or return the transfers in bulk.
+ *
+ * <p>Batch file, one pipe-separated record per line:
+ * <pre>
+ * H|batchReference|createdAt(yyyyMMddHHmmss)|count|total
+ * D|transactionId|amount|senderIfsc|senderAccount|beneficiaryIfsc|beneficiaryAccount|narration
+ * T|count|total
+ * </pre>
+ * Response file:
+ * <pre>
+ * H|batchReference
+ * D|transactionId|S|utr        settled, with the clearing house reference
+ * D|transactionId|R|reason     returned, the amount is credited back
+ * T|count
+ * </pre>
+ */
+@Service
+public class ClearingService {
+
+    private static final DateTimeFormatter REFERENCE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final int MAX_NARRATION_LENGTH = 30;
+
+    private final TransactionRepository transactionRepository;
+    private final ClearingBatchRepository clearingBatchRepository;
+    private final TransactionService transactionService;
+    private final LedgerService ledgerService;
+    private final XmlMirrorService xmlMirrorService;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${banking.clearing.outbound-dir:./data/clearing/outbound}")
+    private String outboundDir;
+
+    @Value("${banking.clearing.inbound-dir:./data/clearing/inbound}")
+    private String inboundDir;
+
+    @Value("${banking.clearing.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${banking.clearing.max-file-attempts:3}")
+    private int maxFileAttempts;
+
+    public ClearingService(TransactionRepository transactionRepository,
+                           ClearingBatchRepository clearingBatchRepository,
+                           TransactionService transactionService,
+                           LedgerService ledgerService,
+                           XmlMirrorService xmlMirrorService,
+                           OutboxService outboxService,
+                           PlatformTransactionManager transactionManager) {
+        this.transactionRepository = transactionRepository;
+        this.clearingBatchRepository = clearingBatchRepository;
+        this.transactionService = transactionService;
+        this.ledgerService = ledgerService;
+        this.xmlMirrorService = xmlMirrorService;
+        this.outboxService = outboxService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void createDirectories() throws IOException {
+        Files.createDirectories(Paths.get(outboundDir));
+        Files.createDirectories(processedDir());
+        Files.createDirectories(rejectedDir());
+    }
+
+    @Scheduled(fixedDelayString = "${banking.clearing.cycle-interval-ms:1800000}")
+    public void scheduledCycle() {
+        try {
+            runCycle();
+        } catch (RuntimeException e) {
+            System.err.println("[CLEARING] Cycle failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the pending external transfers into batch files of at most
+     * {@code batch-size} transfers each, and returns the batches written.
+     */
+    public synchronized List<ClearingBatch> runCycle() {
+        List<ClearingBatch> written = new ArrayList<>();
+        // batches whose file was not written in an earlier cycle or before a crash
+        for (ClearingBatch batch : clearingBatchRepository.findByStatusOrderById(ClearingBatch.BatchStatus.CREATED)) {
+            ClearingBatch submitted = submit(batch);
+            if (submitted != null) {
+                written.add(submitted);
+            }
+        }
+        while (true) {
+            ClearingBatch batch = transactionTemplate.execute(status -> createBatch());
+            if (batch == null) {
+                break;
+            }
+            ClearingBatch submitted = submit(batch);
+            if (submitted == null) {
+                // retried next cycle
+                break;
+            }
+            written.add(submitted);
+            if (batch.getTransactionCount() < batchSize) {
+                break;
+            }
+        }
+        if (!written.isEmpty()) {
+            System.out.println("[CLEARING] Submitted " + written.size() + " batch file(s)");
+        }
+        return written;
+    }
+
+    @Scheduled(fixedDelayString = "${banking.clearing.response-poll-interval-ms:60000}")
+    public void scheduledIngest() {
+        try {
+            ingestResponses();
+        } catch (RuntimeException e) {
+            System.err.println("[CLEARING] Response ingest failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies every response file in the inbound directory. Applied files are moved to
+     * {@code processed}, malformed ones to {@code rejected}; a file that fails for any
+     * other reason is left in place and retried on the next poll, which is safe since
+     * only transfers that are still pending are changed.
+     */
+    public synchronized List<Map<String, Object>> ingestResponses() {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(inboundDir), "*.rsp")) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        files.sort(null);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (Path file : files) {
+            try {
+                results.add(ingest(file));
+                move(file, processedDir());
+            } catch (IllegalArgumentException e) {
+                System.err.println("[CLEARING] Rejected response file " + file.getFileName() + ": " + e.getMessage());
+                move(file, rejectedDir());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("[CLEARING] Could not apply response file " + file.getFileName() + ": " + e.getMessage());
+            }
+        }
+        return results;
+    }
+
+    public List<ClearingBatch> getRecentBatches() {
+        return clearingBatchRepository.findTop50ByOrderByIdDesc();
+    }
+
+    private ClearingBatch createBatch() {
+        List<Transaction> transactions = transactionRepository.findUnbatchedExternalTransfersForUpdate(
+                Transaction.TransactionStatus.PENDING, PageRequest.of(0, batchSize));
+        if (transactions.isEmpty()) {
+            return null;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        ClearingBatch batch = clearingBatchRepository.save(new ClearingBatch(now));
+        batch.setReference(String.format("NEFT%s%06d", now.format(REFERENCE_DATE), batch.getId()));
+        BigDecimal total = BigDecimal.ZERO;
+        for (Transaction transaction : transactions) {
+            transaction.setClearingBatchId(batch.getId());
+            total = total.add(transaction.getAmount());
+        }
+        batch.setTransactionCount(transactions.size());
+        batch.setTotalAmount(total);
+        transactionRepository.saveAll(transactions);
+        return clearingBatchRepository.save(batch);
+    }
+
+    // Writes the batch file, or counts the failure against the batch and gives the batch
+    // up after max-file-attempts. Returns null when no file was written.
+    private ClearingBatch submit(ClearingBatch batch) {
+        try {
+            return writeFile(batch);
+        } catch (RuntimeException e) {
+            System.err.println("[CLEARING] Could not write batch " + batch.getReference() + ": " + e.getMessage());
+            batch.setFileAttempts(batch.getFileAttempts() + 1);
+            if (batch.getFileAttempts() >= maxFileAttempts) {
+                fail(batch);
+            } else {
+                clearingBatchRepository.save(batch);
+            }
+            return null;
+        }
+    }
+
+    // Transfers whose own record cannot be written are returned to the sender; the
+    // others are released to be picked up by the next batch
+    private void fail(ClearingBatch batch) {
+        Map<Transaction, String> rejected = new LinkedHashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Transaction> released = new ArrayList<>();
+            for (Transaction transaction : transactionRepository.findWithFromAccountByClearingBatchId(batch.getId())) {
+                if (transaction.getStatus() != Transaction.TransactionStatus.PENDING) {
+                    continue;
+                }
+                try {
+                    checkFields(detailFields(transaction));
+                    transaction.setClearingBatchId(null);
+                    released.add(transaction);
+                } catch (IllegalArgumentException e) {
+                    rejected.put(transaction, e.getMessage());
+                }
+            }
+            transactionRepository.saveAll(released);
+            batch.setStatus(ClearingBatch.BatchStatus.FAILED);
+            batch.setCompletedAt(LocalDateTime.now());
+            clearingBatchRepository.save(batch);
+            System.err.println("[CLEARING] Gave up on batch " + batch.getReference() + " after "
+                    + batch.getFileAttempts() + " attempt(s): " + released.size() + " transfer(s) released, "
+                    + rejected.size() + " returned");
+        });
+        rejected.forEach((transaction, reason) ->
+                transactionService.returnExternalTransfer(transaction, "Rejected for clearing: " + reason));
+    }
+
+    // Writes the batch file next to its final name and moves it into place, so the
+    // clearing house never picks up a partial file
+    private ClearingBatch writeFile(ClearingBatch batch) {
+        List<Transaction> transactions = transactionRepository.findWithFromAccountByClearingBatchId(batch.getId());
+        String fileName = batch.getReference() + ".txt";
+        Path target = Paths.get(outboundDir, fileName);
+        Path tmp = target.resolveSibling(fileName + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.US_ASCII)) {
+                writeRecord(writer, "H", batch.getReference(), batch.getCreatedAt().format(FILE_TIMESTAMP),
+                        Integer.toString(transactions.size()), batch.getTotalAmount().toPlainString());
+                for (Transaction transaction : transactions) {
+                    writeRecord(writer, detailFields(transaction));
+                }
+                writeRecord(writer, "T", Integer.toString(transactions.size()), batch.getTotalAmount().toPlainString());
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write clearing file " + fileName, e);
+        } finally {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                System.err.println("[CLEARING] Could not delete " + tmp.getFileName() + ": " + e.getMessage());
+            }
+        }
+
+        batch.setStatus(ClearingBatch.BatchStatus.SUBMITTED);
+        batch.setFileName(fileName);
+        batch.setSubmittedAt(LocalDateTime.now());
+        return clearingBatchRepository.save(batch);
+    }
+
+    private Map<String, Object> ingest(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        lines.removeIf(String::isBlank);
+        if (lines.size() < 2 || !lines.get(0).startsWith("H|") || !lines.get(lines.size() - 1).startsWith("T|")) {
+            throw new IllegalArgumentException("missing header or trailer");
+        }
+        String reference = lines.get(0).split("\\|", -1)[1];
+        ClearingBatch batch = clearingBatchRepository.findByReference(reference)
+                .orElseThrow(() -> new IllegalArgumentException("unknown batch " + reference));
+
+        Map<String, String> settled = new HashMap<>();
+        Map<String, String> returned = new LinkedHashMap<>();
+        for (String line : lines.subList(1, lines.size() - 1)) {
+            String[] fields = line.split("\\|", -1);
+            if (fields.length != 4 || !fields[0].equals("D")) {
+                throw new IllegalArgumentException("malformed record: " + line);
+            }
+            switch (fields[2]) {
+                case "S" -> settled.put(fields[1], fields[3]);
+                case "R" -> returned.put(fields[1], fields[3]);
+                default -> throw new IllegalArgumentException("unknown response code in record: " + line);
+            }
+        }
+        String[] trailer = lines.get(lines.size() - 1).split("\\|", -1);
+        int expected;
+        try {
+            expected = Integer.parseInt(trailer[1]);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("malformed trailer");
+        }
+        if (expected != settled.size() + returned.size()) {
+            throw new IllegalArgumentException("trailer count " + expected + " does not match "
+                    + (settled.size() + returned.size()) + " record(s)");
+        }
+
+        int settledNow = transactionTemplate.execute(status -> settle(batch.getId(), settled));
+        int returnedNow = 0;
+        for (Transaction transaction : transactionRepository.findWithFromAccountByClearingBatchId(batch.getId())) {
+            String reason = returned.get(transaction.getTransactionId());
+            if (reason != null && transaction.getStatus() == Transaction.TransactionStatus.PENDING) {
+                transactionService.returnExternalTransfer(transaction, reason);
+                returnedNow++;
+            }
+        }
+        ClearingBatch updated = transactionTemplate.execute(status -> {
+            ClearingBatch current = clearingBatchRepository.findById(batch.getId()).orElseThrow();
+            current.setSettledCount((int) transactionRepository.countByClearingBatchIdAndStatus(
+                    current.getId(), Transaction.TransactionStatus.COMPLETED));
+            current.setReturnedCount((int) transactionRepository.countByClearingBatchIdAndStatus(
+                    current.getId(), Transaction.TransactionStatus.FAILED));
+            if (current.getSettledCount() + current.getReturnedCount() >= current.getTransactionCount()) {
+                current.setStatus(ClearingBatch.BatchStatus.COMPLETED);
+                current.setCompletedAt(LocalDateTime.now());
+            }
+            return clearingBatchRepository.save(current);
+        });
+        System.out.println("[CLEARING] Applied " + file.getFileName() + " for " + reference + ": "
+                + settledNow + " settled, " + returnedNow + " returned");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("file", file.getFileName().toString());
+        result.put("batch", reference);
+        result.put("settled", settledNow);
+        result.put("returned", returnedNow);
+        result.put("batchStatus", updated.getStatus());
+        return result;
+    }
+
+    private int settle(Long batchId, Map<String, String> settled) {
+        if (settled.isEmpty()) {
+            return 0;
+        }
+        List<Transaction> completed = new ArrayList<>();
+        for (Transaction transaction : transactionRepository.findWithFromAccountByClearingBatchId(batchId)) {
+            String utr = settled.get(transaction.getTransactionId());
+            if (utr != null && transaction.getStatus() == Transaction.TransactionStatus.PENDING) {
+                transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+                transaction.setReferenceNumber(utr);
+                completed.add(transaction);
+            }
+        }
+        transactionRepository.saveAll(completed);
+        ledgerService.recordCleared(completed);
+        xmlMirrorService.mirrorAll(completed);
+        outboxService.addAll(completed);
+        return completed.size();
+    }
+
+    private static String[] detailFields(Transaction transaction) {
+        return new String[] {"D", transaction.getTransactionId(), transaction.getAmount().toPlainString(),
+                transaction.getFromAccount().getIfscCode(), transaction.getFromAccount().getAccountNumber(),
+                transaction.getBeneficiaryIfsc(), transaction.getExternalAccountNumber(),
+                narration(transaction.getDescription())};
+    }
+
+    private static void writeRecord(BufferedWriter writer, String... fields) throws IOException {
+        checkFields(fields);
+        writer.write(String.join("|", fields));
+        writer.write('\n');
+    }
+
+    // A delimiter inside a field would shift or split the record for the clearing house,
+    // and the file is plain ASCII
+    private static void checkFields(String... fields) {
+        for (String field : fields) {
+            if (field == null) {
+                continue;
+            }
+            if (field.indexOf('|') >= 0 || field.indexOf('\r') >= 0 || field.indexOf('\n') >= 0) {
+                throw new IllegalArgumentException("Field contains a record delimiter: " + field);
+            }
+            if (!StandardCharsets.US_ASCII.newEncoder().canEncode(field)) {
+                throw new IllegalArgumentException("Field is not ASCII: " + field);
+            }
+        }
+    }
+
+    // Accents are dropped (café -> cafe); other non-ASCII characters, delimiters and
+    // line breaks become spaces
+    private static String narration(String description) {
+        if (description == null) {
+            return "";
+        }
+        String ascii = Normalizer.normalize(description, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .replaceAll("[^\\x20-\\x7E]|\\|", " ");
+        String cleaned = ascii.replaceAll(" {2,}", " ").trim();
+        return cleaned.length() > MAX_NARRATION_LENGTH ? cleaned.substring(0, MAX_NARRATION_LENGTH) : cleaned;
+    }
+
+    private void move(Path file, Path dir) {
+        try {
+            Files.move(file, dir.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("[CLEARING] Could not move " + file.getFileName() + " to " + dir + ": " + e.getMessage());
+        }
+    }
+
+    private Path processedDir() {
+        return Paths.get(inboundDir, "processed");
+    }
+
+    private Path rejectedDir() {
+        return Paths.get(inboundDir, "rejected");
+    }
+}
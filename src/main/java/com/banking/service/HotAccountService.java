@@ -0,0 +1,197 @@
+package com.banking.service;
+
+import com.banking.model.Account;
+import com.banking.model.AccountBalanceSlot;
+import com.banking.repository.AccountBalanceSlotRepository;
+import com.banking.repository.AccountRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sharded balances for accounts that receive a large share of all credits, such as
+ * merchant collection accounts. A hot account's balance is its row balance plus N
+ * balance slots. Credits are added to a random slot with a single UPDATE and never
+ * lock the account row, so concurrent incoming payments only contend when they pick
+ * the same slot. Debits still lock the account and draw on the row balance; when it
+ * is short, the slots are folded into it first. A background job folds slots
+ * regularly so the row balance shown in account listings stays close to the total.
+ *
+ * <p>Hot mode cannot be switched off again: a credit that chose the slot path may
+ * still be in flight at any time, so slot rows are never removed.
+ *
+ * <p>Each instance keeps the slot counts in memory and re-reads them before every
+ * fold, so an account made hot on another instance is seen here within one fold
+ * interval. Until then this instance credits the account row, which the total
+ * includes as well, and shows the row balance without the slots.
+ */
+@Service
+public class HotAccountService {
+
+    private final AccountRepository accountRepository;
+    private final AccountBalanceSlotRepository accountBalanceSlotRepository;
+    private final AccountLockManager accountLockManager;
+    private final TransactionTemplate transactionTemplate;
+    // account number -> slot count of every hot account
+    private final Map<String, Integer> slotCounts = new ConcurrentHashMap<>();
+    private final Map<String, CachedBalance> balanceCache = new ConcurrentHashMap<>();
+
+    @Value("${banking.accounts.hot.max-slots:64}")
+    private int maxSlots;
+
+    @Value("${banking.accounts.hot.balance-cache-ms:0}")
+    private long balanceCacheMs;
+
+    public HotAccountService(AccountRepository accountRepository,
+                             AccountBalanceSlotRepository accountBalanceSlotRepository,
+                             AccountLockManager accountLockManager,
+                             PlatformTransactionManager transactionManager) {
+        this.accountRepository = accountRepository;
+        this.accountBalanceSlotRepository = accountBalanceSlotRepository;
+        this.accountLockManager = accountLockManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Reads the slot count of every hot account, including those enabled on other
+     * instances. Counts only grow, like the slot rows behind them.
+     */
+    @PostConstruct
+    public void loadHotAccounts() {
+        int known = slotCounts.size();
+        for (Object[] row : accountBalanceSlotRepository.countSlotsByAccountNumber()) {
+            slotCounts.merge((String) row[0], ((Number) row[1]).intValue(), Math::max);
+        }
+        if (slotCounts.size() > known) {
+            System.out.println("[HOT-ACCOUNTS] Loaded " + (slotCounts.size() - known) + " hot account(s)");
+        }
+    }
+
+    public boolean isHot(String accountNumber) {
+        return slotCounts.containsKey(accountNumber);
+    }
+
+    public Map<String, Integer> getHotAccounts() {
+        return new TreeMap<>(slotCounts);
+    }
+
+    /**
+     * Puts an account into hot mode with the given number of balance slots. Calling
+     * it again can only add slots.
+     *
+     * @return the slot count now in effect
+     */
+    public int enable(String accountNumber, int slots) {
+        if (slots < 1 || slots > maxSlots) {
+            throw new RuntimeException("Slot count must be between 1 and " + maxSlots);
+        }
+        int count = transactionTemplate.execute(status -> {
+            Account account = accountRepository.findByAccountNumber(accountNumber)
+                    .orElseThrow(() -> new RuntimeException("Account not found"));
+            int existing = (int) accountBalanceSlotRepository.countByAccountId(account.getId());
+            for (int slot = existing; slot < slots; slot++) {
+                accountBalanceSlotRepository.save(new AccountBalanceSlot(account.getId(), slot));
+            }
+            return Math.max(existing, slots);
+        });
+        slotCounts.merge(accountNumber, count, Math::max);
+        System.out.println("[HOT-ACCOUNTS] Account " + accountNumber + " is hot with " + count + " balance slots");
+        return count;
+    }
+
+    /**
+     * Adds a credit to a randomly chosen slot of a hot account, in the caller's
+     * transaction. The account row is neither read nor locked.
+     */
+    @Transactional
+    public void credit(Account account, BigDecimal amount) {
+        int slot = ThreadLocalRandom.current().nextInt(slotCounts.get(account.getAccountNumber()));
+        if (accountBalanceSlotRepository.credit(account.getId(), slot, amount) != 1) {
+            throw new IllegalStateException("Balance slot " + slot + " of account "
+                    + account.getAccountNumber() + " is missing");
+        }
+    }
+
+    /**
+     * Moves everything held in the slots of a hot account into its row balance. The
+     * caller must hold the account's row lock.
+     *
+     * @return the amount moved
+     */
+    @Transactional
+    public BigDecimal fold(Account account) {
+        List<AccountBalanceSlot> slots = accountBalanceSlotRepository.findByAccountIdForUpdate(account.getId());
+        BigDecimal folded = BigDecimal.ZERO;
+        for (AccountBalanceSlot slot : slots) {
+            if (slot.getBalance().signum() != 0) {
+                folded = folded.add(slot.getBalance());
+                slot.setBalance(BigDecimal.ZERO);
+            }
+        }
+        if (folded.signum() != 0) {
+            account.setBalance(account.getBalance().add(folded));
+            accountBalanceSlotRepository.saveAll(slots);
+            accountRepository.save(account);
+        }
+        return folded;
+    }
+
+    /**
+     * Row balance plus slots. With a balance cache configured, the sum may be up to
+     * that many milliseconds old.
+     */
+    public BigDecimal getBalance(String accountNumber) {
+        if (balanceCacheMs <= 0) {
+            return accountBalanceSlotRepository.totalBalance(accountNumber);
+        }
+        long now = System.currentTimeMillis();
+        CachedBalance cached = balanceCache.get(accountNumber);
+        if (cached != null && now - cached.readAt() < balanceCacheMs) {
+            return cached.balance();
+        }
+        BigDecimal balance = accountBalanceSlotRepository.totalBalance(accountNumber);
+        balanceCache.put(accountNumber, new CachedBalance(balance, now));
+        return balance;
+    }
+
+    @Scheduled(fixedDelayString = "${banking.accounts.hot.fold-interval-ms:1000}")
+    public void foldSlots() {
+        loadHotAccounts();
+        if (slotCounts.isEmpty()) {
+            return;
+        }
+        for (String accountNumber : accountBalanceSlotRepository.findAccountNumbersWithUnfoldedCredits()) {
+            try {
+                // Skip accounts that are busy with a debit; the next run will fold them
+                AccountLockManager.Locked locked = accountLockManager.tryLock(List.of(accountNumber));
+                if (locked == null) {
+                    continue;
+                }
+                try (locked) {
+                    transactionTemplate.executeWithoutResult(status -> accountRepository
+                            .findByAccountNumberInForUpdate(List.of(accountNumber))
+                            .forEach(this::fold));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("[HOT-ACCOUNTS] Failed to fold slots of " + accountNumber + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private record CachedBalance(BigDecimal balance, long readAt) {
+    }
+}
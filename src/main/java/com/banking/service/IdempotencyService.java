@@ -0,0 +1,250 @@
+package com.banking.service;
+
+import com.banking.model.IdempotencyRecord;
+import com.banking.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Makes money-moving endpoints safe to retry. The first request carrying an
+ * {@code Idempotency-Key} runs normally and its successful response is stored; any
+ * later request with the same key from the same user gets that response back
+ * without running again. Responses are kept in a bounded in-memory cache in front
+ * of the {@code idempotency_keys} table, and duplicates that arrive while the first
+ * request is still running wait for it instead of executing.
+ *
+ * <p>The response is stored after the action has committed, so a crash in between
+ * leaves a reservation without a response. Such a key is never run again: once the
+ * reservation is older than a request could take, duplicates are told the outcome
+ * is unknown until the key expires. The same goes for a request that failed in a way
+ * that may have left its changes committed; only a request the endpoint rejected,
+ * with nothing applied, releases its key so the client can retry with it.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 100;
+    // after this long, a reservation without a response is taken to be from a crashed request
+    private static final long RESERVATION_MINUTES = 5;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final Map<String, StoredResponse> cache;
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${banking.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${banking.idempotency.cache-size:10000}") int cacheSize) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Runs {@code action} once per key. Without a key the action simply runs.
+     *
+     * @param endpoint identifies the operation, so a key cannot be replayed
+     *                 against a different endpoint
+     * @param request  the request body, hashed to detect a key reused for a
+     *                 different request
+     */
+    public ResponseEntity<?> execute(String idempotencyKey, String endpoint, Object request,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return error(HttpStatus.BAD_REQUEST, HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        String cacheKey = username + '\n' + idempotencyKey;
+        String requestHash = hash(endpoint, request);
+
+        StoredResponse stored = lookup(cacheKey, username, idempotencyKey);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            // A duplicate of a request this instance is executing right now
+            StoredResponse result = running.join();
+            return result != null ? replay(result, requestHash) : execute(idempotencyKey, endpoint, request, action);
+        }
+
+        try {
+            // The previous owner of the key may have finished just before we took over
+            stored = lookup(cacheKey, username, idempotencyKey);
+            if (stored != null) {
+                mine.complete(stored);
+                return replay(stored, requestHash);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            IdempotencyRecord record;
+            try {
+                record = idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(username, idempotencyKey,
+                        requestHash, now, now.plusHours(ttlHours)));
+            } catch (DataIntegrityViolationException e) {
+                // reserved by another instance in the meantime
+                return error(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still being processed");
+            }
+
+            // If the action throws, the reservation stays: whatever failed may have come
+            // after its changes were committed
+            ResponseEntity<?> response = action.get();
+
+            if (response.getStatusCode().is2xxSuccessful()) {
+                stored = new StoredResponse(response.getStatusCode().value(), toJson(response.getBody()),
+                        requestHash, now, now.plusHours(ttlHours));
+                record.setResponseStatus(stored.status());
+                record.setResponseBody(stored.body());
+                record.setExpiresAt(stored.expiresAt());
+                idempotencyRecordRepository.save(record);
+                synchronized (cache) {
+                    cache.put(cacheKey, stored);
+                }
+            } else if (isRejected(response)) {
+                // nothing was applied, so the client can retry with the same key
+                idempotencyRecordRepository.delete(record);
+            }
+            // otherwise it may have been applied: duplicates are told the outcome is unknown
+            mine.complete(stored);
+            return response;
+        } finally {
+            mine.complete(null);
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${banking.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (cache) {
+            cache.values().removeIf(stored -> stored.expiresAt().isBefore(now));
+        }
+        int purged = idempotencyRecordRepository.deleteExpired(now);
+        if (purged > 0) {
+            System.out.println("[IDEMPOTENCY] Purged " + purged + " expired key(s)");
+        }
+    }
+
+    private StoredResponse lookup(String cacheKey, String username, String idempotencyKey) {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (cache) {
+            StoredResponse cached = cache.get(cacheKey);
+            if (cached != null && cached.expiresAt().isAfter(now)) {
+                return cached;
+            }
+        }
+        IdempotencyRecord record = idempotencyRecordRepository
+                .findByUsernameAndIdempotencyKey(username, idempotencyKey)
+                .orElse(null);
+        if (record == null) {
+            return null;
+        }
+        if (record.getExpiresAt().isBefore(now)) {
+            idempotencyRecordRepository.delete(record);
+            return null;
+        }
+        StoredResponse stored = new StoredResponse(record.getResponseStatus(), record.getResponseBody(),
+                record.getRequestHash(), record.getCreatedAt(), record.getExpiresAt());
+        if (stored.status() != null) {
+            synchronized (cache) {
+                cache.put(cacheKey, stored);
+            }
+        }
+        return stored;
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            return error(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used for a different request");
+        }
+        if (stored.status() == null) {
+            if (stored.createdAt().isBefore(LocalDateTime.now().minusMinutes(RESERVATION_MINUTES))) {
+                // it may or may not have been applied; running it again could apply it twice
+                return error(HttpStatus.CONFLICT, "The outcome of the earlier request with this " + HEADER
+                        + " is unknown; check the account before retrying with a new key");
+            }
+            return error(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still being processed");
+        }
+        return ResponseEntity.status(stored.status())
+                .header("Idempotent-Replayed", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(stored.body());
+    }
+
+    /**
+     * Whether the endpoint turned the request down without applying anything. The
+     * money-moving endpoints answer 400 for validation errors and for failures that
+     * rolled their transaction back, such as a lock timeout, and use other statuses
+     * (409 for a transfer that is not settled, 500 for a failed commit) when the
+     * outcome is not known.
+     */
+    private static boolean isRejected(ResponseEntity<?> response) {
+        int status = response.getStatusCode().value();
+        return status == HttpStatus.BAD_REQUEST.value() || status == HttpStatus.UNPROCESSABLE_ENTITY.value();
+    }
+
+    private String hash(String endpoint, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(endpoint.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(toJson(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize response: " + e.getMessage(), e);
+        }
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String message) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", message);
+        return ResponseEntity.status(status).body(error);
+    }
+
+    private record StoredResponse(Integer status, String body, String requestHash, LocalDateTime createdAt,
+                                  LocalDateTime expiresAt) {
+    }
+}
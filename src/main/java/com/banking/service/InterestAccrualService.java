@@ -0,0 +1,436 @@
+package com.banking.service;
+
+import com.banking.model.Account;
+import com.banking.model.InterestRun;
+import com.banking.model.InterestRunPartition;
+import com.banking.model.Transaction;
+import com.banking.repository.AccountRepository;
+import com.banking.repository.InterestRunPartitionRepository;
+import com.banking.repository.InterestRunRepository;
+import com.banking.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pays monthly interest on every account whose type earns interest.
+ *
+ * <p>A run splits the accounts into id-range partitions, processed in parallel on a
+ * fork-join pool. Each partition walks its range in chunks; a chunk is one short
+ * database transaction that locks the chunk's accounts like a deposit would, writes
+ * the {@code INTEREST} transactions and balance changes in batches, and advances the
+ * partition's checkpoint. Live transfers only ever wait for one chunk, and a run that
+ * stops part way resumes after its last committed chunk.
+ *
+ * <p>Interest is computed from each account's ledger balance at the end of the
+ * period, not its balance when the chunk runs, so the amounts do not depend on when
+ * the run happens or how often it is resumed.
+ */
+@Service
+public class InterestAccrualService {
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final InterestRunRepository interestRunRepository;
+    private final InterestRunPartitionRepository interestRunPartitionRepository;
+    private final AccountService accountService;
+    private final LedgerService ledgerService;
+    private final XmlMirrorService xmlMirrorService;
+    private final OutboxService outboxService;
+    private final AccountLockManager accountLockManager;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // annual rates in percent
+    @Value("${banking.interest.rate.savings:3.5}")
+    private BigDecimal savingsRate;
+
+    @Value("${banking.interest.rate.current:0}")
+    private BigDecimal currentRate;
+
+    @Value("${banking.interest.rate.fixed-deposit:6.5}")
+    private BigDecimal fixedDepositRate;
+
+    @Value("${banking.interest.rate.recurring-deposit:6.0}")
+    private BigDecimal recurringDepositRate;
+
+    // width of a partition in account ids
+    @Value("${banking.interest.partition-size:10000}")
+    private long partitionSize;
+
+    @Value("${banking.interest.chunk-size:100}")
+    private int chunkSize;
+
+    // 0 means one thread per processor
+    @Value("${banking.interest.parallelism:0}")
+    private int parallelism;
+
+    @Value("${banking.transfers.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${banking.transfers.retry-backoff-ms:20}")
+    private long retryBackoffMs;
+
+    public InterestAccrualService(AccountRepository accountRepository,
+                                  TransactionRepository transactionRepository,
+                                  InterestRunRepository interestRunRepository,
+                                  InterestRunPartitionRepository interestRunPartitionRepository,
+                                  AccountService accountService,
+                                  LedgerService ledgerService,
+                                  XmlMirrorService xmlMirrorService,
+                                  OutboxService outboxService,
+                                  AccountLockManager accountLockManager,
+                                  PlatformTransactionManager transactionManager) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.interestRunRepository = interestRunRepository;
+        this.interestRunPartitionRepository = interestRunPartitionRepository;
+        this.accountService = accountService;
+        this.ledgerService = ledgerService;
+        this.xmlMirrorService = xmlMirrorService;
+        this.outboxService = outboxService;
+        this.accountLockManager = accountLockManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Pays interest for the month that just ended.
+     */
+    @Scheduled(cron = "${banking.interest.cron:0 0 2 1 * *}")
+    public void accrueMonthly() {
+        try {
+            // in the background, so the shared scheduler thread is not held for the whole run
+            start(YearMonth.now().minusMonths(1));
+        } catch (RuntimeException e) {
+            System.err.println("[INTEREST] Scheduled run not started: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Resumes a run that was interrupted by a shutdown or crash.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2)
+    public void resumeRun() {
+        List<InterestRun> interrupted = interestRunRepository.findByStatus(InterestRun.RunStatus.RUNNING);
+        if (!interrupted.isEmpty()) {
+            InterestRun run = interrupted.get(0);
+            System.out.println("[INTEREST] Resuming run for " + run.getPeriod());
+            start(YearMonth.parse(run.getPeriod()));
+        }
+    }
+
+    /**
+     * Starts the run for a period in the background, or resumes it if it was
+     * interrupted. A period that has already been paid is not paid again.
+     */
+    public InterestRun start(YearMonth period) {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("An interest run is already in progress");
+        }
+        InterestRun run;
+        try {
+            run = openRun(period);
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        if (run.getStatus() == InterestRun.RunStatus.COMPLETED) {
+            running.set(false);
+            return run;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                execute(run);
+            } finally {
+                running.set(false);
+            }
+        }, "interest-" + period);
+        thread.setDaemon(true);
+        thread.start();
+        return run;
+    }
+
+    public List<InterestRun> getRecentRuns() {
+        return interestRunRepository.findTop12ByOrderByIdDesc();
+    }
+
+    public Map<String, Object> getStatus(YearMonth period) {
+        InterestRun run = interestRunRepository.findByPeriod(period.toString())
+                .orElseThrow(() -> new RuntimeException("No interest run for " + period));
+        List<InterestRunPartition> partitions = interestRunPartitionRepository.findByRunIdOrderByFromAccountId(run.getId());
+        long processed = 0;
+        BigDecimal paid = BigDecimal.ZERO;
+        int completed = 0;
+        for (InterestRunPartition partition : partitions) {
+            processed += partition.getAccountsProcessed();
+            paid = paid.add(partition.getInterestPaid());
+            if (partition.isCompleted()) {
+                completed++;
+            }
+        }
+        LocalDateTime end = run.getFinishedAt() != null ? run.getFinishedAt() : LocalDateTime.now();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("period", run.getPeriod());
+        status.put("status", run.getStatus());
+        status.put("partitions", partitions.size());
+        status.put("partitionsCompleted", completed);
+        status.put("accountsProcessed", processed);
+        status.put("interestPaid", paid);
+        status.put("startedAt", run.getStartedAt());
+        status.put("finishedAt", run.getFinishedAt());
+        status.put("accountsPerSecond", perSecond(processed, Duration.between(run.getStartedAt(), end)));
+        return status;
+    }
+
+    // Finds the period's run or creates it with its partitions. Accounts opened after
+    // the run was created are not part of it.
+    private InterestRun openRun(YearMonth period) {
+        InterestRun existing = interestRunRepository.findByPeriod(period.toString()).orElse(null);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                List<Object[]> range = accountRepository.findIdRange();
+                Long minId = range.isEmpty() ? null : (Long) range.get(0)[0];
+                Long maxId = range.isEmpty() ? null : (Long) range.get(0)[1];
+                InterestRun run = interestRunRepository.save(new InterestRun(period.toString(),
+                        maxId != null ? maxId : 0L, LocalDateTime.now()));
+                if (minId != null) {
+                    List<InterestRunPartition> partitions = new ArrayList<>();
+                    for (long from = minId; from <= maxId; from += partitionSize) {
+                        partitions.add(new InterestRunPartition(run.getId(), from,
+                                Math.min(from + partitionSize - 1, maxId)));
+                    }
+                    interestRunPartitionRepository.saveAll(partitions);
+                }
+                return run;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // created by another instance at the same time
+            return interestRunRepository.findByPeriod(period.toString())
+                    .orElseThrow(() -> new RuntimeException("Interest run for " + period + " could not be created"));
+        }
+    }
+
+    private InterestRun execute(InterestRun run) {
+        Map<Account.AccountType, BigDecimal> monthlyRates = monthlyRates();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        AtomicLong processedNow = new AtomicLong();
+        for (InterestRunPartition partition : interestRunPartitionRepository.findByRunIdOrderByFromAccountId(run.getId())) {
+            if (!partition.isCompleted()) {
+                tasks.add(() -> {
+                    processPartition(partition, run.getPeriod(), monthlyRates, processedNow);
+                    return null;
+                });
+            }
+        }
+
+        long started = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        boolean failed = false;
+        markRunning(run);
+        try {
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                try {
+                    result.get();
+                } catch (Exception e) {
+                    failed = true;
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    System.err.println("[INTEREST] Partition failed in run for " + run.getPeriod() + ": " + cause.getMessage());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+        boolean runFailed = failed;
+
+        return transactionTemplate.execute(status -> {
+            InterestRun current = interestRunRepository.findById(run.getId()).orElseThrow();
+            long processed = 0;
+            BigDecimal paid = BigDecimal.ZERO;
+            for (InterestRunPartition partition : interestRunPartitionRepository.findByRunIdOrderByFromAccountId(run.getId())) {
+                processed += partition.getAccountsProcessed();
+                paid = paid.add(partition.getInterestPaid());
+            }
+            current.setAccountsProcessed(processed);
+            current.setInterestPaid(paid);
+            // a failed run stays resumable: starting its period again continues it
+            current.setStatus(runFailed ? InterestRun.RunStatus.FAILED : InterestRun.RunStatus.COMPLETED);
+            current.setFinishedAt(LocalDateTime.now());
+            System.out.println("[INTEREST] Run for " + current.getPeriod() + " " + current.getStatus().name().toLowerCase()
+                    + ": " + processedNow.get() + " account(s) in " + elapsed.toMillis() + " ms ("
+                    + perSecond(processedNow.get(), elapsed) + " accounts/s), " + paid + " paid in total");
+            return interestRunRepository.save(current);
+        });
+    }
+
+    private void markRunning(InterestRun run) {
+        if (run.getStatus() != InterestRun.RunStatus.RUNNING) {
+            run.setStatus(InterestRun.RunStatus.RUNNING);
+            run.setFinishedAt(null);
+            interestRunRepository.save(run);
+        }
+    }
+
+    private void processPartition(InterestRunPartition partition, String period,
+                                  Map<Account.AccountType, BigDecimal> monthlyRates, AtomicLong processedNow) {
+        List<Account.AccountType> types = new ArrayList<>(monthlyRates.keySet());
+        long lastId = partition.getLastAccountId();
+        while (true) {
+            List<Object[]> chunk = types.isEmpty() ? List.of() : accountRepository.findIdsAfter(
+                    lastId, partition.getToAccountId(), types, PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            List<String> accountNumbers = new ArrayList<>(chunk.size());
+            for (Object[] row : chunk) {
+                accountNumbers.add((String) row[1]);
+            }
+            long chunkLastId = (Long) chunk.get(chunk.size() - 1)[0];
+            processedNow.addAndGet(payChunk(partition.getId(), accountNumbers, chunkLastId, period, monthlyRates));
+            lastId = chunkLastId;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            InterestRunPartition current = interestRunPartitionRepository.findById(partition.getId()).orElseThrow();
+            current.setCompleted(true);
+            interestRunPartitionRepository.save(current);
+        });
+    }
+
+    // Pays one chunk and moves the checkpoint past it, retrying when the accounts are
+    // busy with live transfers
+    private int payChunk(Long partitionId, List<String> accountNumbers, long chunkLastId, String period,
+                         Map<Account.AccountType, BigDecimal> monthlyRates) {
+        List<String> locked = accountService.accountsToLock(List.of(), accountNumbers);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                AccountLockManager.Locked lock = accountLockManager.tryLock(locked);
+                if (lock != null) {
+                    try (lock) {
+                        return transactionTemplate.execute(status -> doPayChunk(partitionId, locked, accountNumbers,
+                                chunkLastId, period, monthlyRates));
+                    }
+                }
+                if (attempt >= maxAttempts) {
+                    throw new RuntimeException("Accounts are busy");
+                }
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw new RuntimeException("Interest chunk failed: " + e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interest run interrupted");
+            }
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(Math.max(1, retryBackoffMs << (attempt - 1))) + 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interest run interrupted");
+            }
+        }
+    }
+
+    private int doPayChunk(Long partitionId, List<String> locked, List<String> accountNumbers, long chunkLastId,
+                           String period, Map<Account.AccountType, BigDecimal> monthlyRates) {
+        // Locked until commit, so an instance resuming the same run waits here and then
+        // sees this chunk's checkpoint instead of paying it a second time
+        InterestRunPartition partition = interestRunPartitionRepository.findByIdForUpdate(partitionId).orElseThrow();
+        if (partition.getLastAccountId() >= chunkLastId) {
+            // already committed by an earlier attempt
+            return 0;
+        }
+        Map<String, Account> accounts = accountService.loadForBalanceChange(locked, accountNumbers);
+        LocalDateTime periodEnd = YearMonth.parse(period).atEndOfMonth().atTime(LocalTime.MAX);
+        LocalDateTime now = LocalDateTime.now();
+        List<Transaction> transactions = new ArrayList<>();
+        for (String accountNumber : accountNumbers) {
+            Account account = accounts.get(accountNumber);
+            if (account == null) {
+                continue;
+            }
+            // this run's own interest is posted after the period ends and is not included
+            BigDecimal balance = ledgerService.getBalanceAt(accountNumber, periodEnd);
+            BigDecimal interest = balance.multiply(monthlyRates.get(account.getAccountType()))
+                    .setScale(2, RoundingMode.HALF_EVEN);
+            if (interest.signum() <= 0) {
+                continue;
+            }
+            Transaction transaction = new Transaction();
+            transaction.setToAccount(account);
+            transaction.setAmount(interest);
+            transaction.setTransactionType(Transaction.TransactionType.INTEREST);
+            transaction.setDescription("Interest for " + period);
+            transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+            transaction.setTransactionDate(now);
+            accountService.updateBalance(account, interest);
+            transactions.add(transaction);
+        }
+
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+        ledgerService.recordAll(saved);
+        xmlMirrorService.mirrorAll(saved);
+        outboxService.addAll(saved);
+
+        BigDecimal paid = BigDecimal.ZERO;
+        for (Transaction transaction : saved) {
+            paid = paid.add(transaction.getAmount());
+        }
+        partition.setLastAccountId(chunkLastId);
+        partition.setAccountsProcessed(partition.getAccountsProcessed() + accountNumbers.size());
+        partition.setInterestPaid(partition.getInterestPaid().add(paid));
+        interestRunPartitionRepository.save(partition);
+        return accountNumbers.size();
+    }
+
+    // Monthly rates as fractions, for the account types that earn interest
+    private Map<Account.AccountType, BigDecimal> monthlyRates() {
+        Map<Account.AccountType, BigDecimal> annual = new EnumMap<>(Account.AccountType.class);
+        annual.put(Account.AccountType.SAVINGS, savingsRate);
+        annual.put(Account.AccountType.CURRENT, currentRate);
+        annual.put(Account.AccountType.FIXED_DEPOSIT, fixedDepositRate);
+        annual.put(Account.AccountType.RECURRING_DEPOSIT, recurringDepositRate);
+        Map<Account.AccountType, BigDecimal> monthly = new EnumMap<>(Account.AccountType.class);
+        annual.forEach((type, rate) -> {
+            if (rate.signum() > 0) {
+                monthly.put(type, rate.divide(BigDecimal.valueOf(1200), 12, RoundingMode.HALF_EVEN));
+            }
+        });
+        return monthly;
+    }
+
+    private static long perSecond(long count, Duration elapsed) {
+        long millis = Math.max(elapsed.toMillis(), 1);
+        return count * 1000 / millis;
+    }
+}
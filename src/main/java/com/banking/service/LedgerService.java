@@ -0,0 +1,317 @@
+package com.banking.service;
+
+import com.banking.model.Account;
+import com.banking.model.BalanceSnapshot;
+import com.banking.model.Posting;
+import com.banking.model.Transaction;
+import com.banking.repository.AccountRepository;
+import com.banking.repository.BalanceSnapshotRepository;
+import com.banking.repository.PostingRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Append-only double-entry ledger behind the account balances. Every completed
+ * transaction is booked as a debit and a credit posting in the same database
+ * transaction that changes the balances, so {@code Account.balance} (plus any hot
+ * account slots) stays a materialized view of the ledger and reads keep using it.
+ *
+ * <p>Money entering or leaving the bank is booked against system accounts:
+ * {@link #CASH_ACCOUNT} for deposits and withdrawals, {@link #EXTERNAL_ACCOUNT} for
+ * transfers to other banks, {@link #INTEREST_ACCOUNT} for interest paid,
+ * {@link #TRANSIT_ACCOUNT} for internal transfers that are debited but not yet
+ * credited, and {@link #CLEARING_ACCOUNT} for external transfers waiting for the
+ * clearing house.
+ *
+ * <p>Snapshots are taken periodically for active accounts, so recomputing a balance
+ * reads one snapshot and a short tail of postings.
+ */
+@Service
+public class LedgerService {
+
+    public static final String CASH_ACCOUNT = "SYS-CASH";
+    public static final String EXTERNAL_ACCOUNT = "SYS-EXTERNAL";
+    public static final String INTEREST_ACCOUNT = "SYS-INTEREST";
+    public static final String TRANSIT_ACCOUNT = "SYS-TRANSIT";
+    public static final String CLEARING_ACCOUNT = "SYS-CLEARING";
+
+    private final PostingRepository postingRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final AccountRepository accountRepository;
+    private final AccountService accountService;
+    private final HotAccountService hotAccountService;
+    private final AccountLockManager accountLockManager;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${banking.ledger.snapshot-min-postings:100}")
+    private long snapshotMinPostings;
+
+    // postings younger than this may still belong to uncommitted transactions
+    @Value("${banking.ledger.snapshot-lag-seconds:60}")
+    private long snapshotLagSeconds;
+
+    // postings up to this id have been considered for snapshots
+    private long snapshotWatermark;
+
+    public LedgerService(PostingRepository postingRepository,
+                         BalanceSnapshotRepository balanceSnapshotRepository,
+                         AccountRepository accountRepository,
+                         AccountService accountService,
+                         HotAccountService hotAccountService,
+                         AccountLockManager accountLockManager,
+                         PlatformTransactionManager transactionManager) {
+        this.postingRepository = postingRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.accountRepository = accountRepository;
+        this.accountService = accountService;
+        this.hotAccountService = hotAccountService;
+        this.accountLockManager = accountLockManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Accounts that existed before the ledger have balances but no postings. They get
+     * an opening snapshot of their current balance, taken before any request is served.
+     */
+    @PostConstruct
+    public void recordOpeningBalances() {
+        int opened = 0;
+        for (String accountNumber : balanceSnapshotRepository.findAccountNumbersWithoutLedger()) {
+            BigDecimal balance = accountService.getAccountBalance(accountNumber);
+            if (balance.signum() != 0) {
+                balanceSnapshotRepository.save(new BalanceSnapshot(accountNumber, 0L, balance, LocalDateTime.now()));
+                opened++;
+            }
+        }
+        if (opened > 0) {
+            System.out.println("[LEDGER] Recorded opening balances for " + opened + " account(s)");
+        }
+    }
+
+    /**
+     * Records the balance a new account is opened with. Like pre-ledger balances, it
+     * is an opening snapshot rather than a posting, so the account's history does
+     * not show a transaction that never happened.
+     */
+    @Transactional
+    public void recordOpeningBalance(Account account) {
+        if (account.getBalance().signum() != 0) {
+            balanceSnapshotRepository.save(new BalanceSnapshot(account.getAccountNumber(), 0L,
+                    account.getBalance(), LocalDateTime.now()));
+        }
+    }
+
+    /**
+     * Books a saved transaction, in the caller's database transaction. An internal
+     * transfer that is still {@code PENDING} is booked into transit, see
+     * {@link #recordSettlement}; a pending external transfer is booked into clearing,
+     * see {@link #recordCleared} and {@link #recordReturned}.
+     */
+    @Transactional
+    public void record(Transaction transaction) {
+        recordAll(List.of(transaction));
+    }
+
+    @Transactional
+    public void recordAll(List<Transaction> transactions) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Posting> postings = new ArrayList<>(transactions.size() * 2);
+        for (Transaction transaction : transactions) {
+            String from = transaction.getFromAccount() != null ? transaction.getFromAccount().getAccountNumber() : null;
+            String to = transaction.getToAccount() != null ? transaction.getToAccount().getAccountNumber() : null;
+            if (from == null) {
+                from = transaction.getTransactionType() == Transaction.TransactionType.INTEREST
+                        ? INTEREST_ACCOUNT : CASH_ACCOUNT;
+            }
+            if (to == null) {
+                if (transaction.getTransactionType() == Transaction.TransactionType.WITHDRAWAL) {
+                    to = CASH_ACCOUNT;
+                } else {
+                    to = transaction.getStatus() == Transaction.TransactionStatus.PENDING
+                            ? CLEARING_ACCOUNT : EXTERNAL_ACCOUNT;
+                }
+            } else if (transaction.getStatus() == Transaction.TransactionStatus.PENDING) {
+                to = TRANSIT_ACCOUNT;
+            }
+            addLegs(postings, transaction, from, to, now);
+        }
+        postingRepository.saveAll(postings);
+    }
+
+    /**
+     * Books the second step of an internal transfer that was recorded while pending:
+     * the money leaves transit and reaches the destination account.
+     */
+    @Transactional
+    public void recordSettlement(Transaction transaction) {
+        List<Posting> postings = new ArrayList<>(2);
+        addLegs(postings, transaction, TRANSIT_ACCOUNT, transaction.getToAccount().getAccountNumber(),
+                LocalDateTime.now());
+        postingRepository.saveAll(postings);
+    }
+
+    /**
+     * Books external transfers the clearing house has settled: the money leaves
+     * clearing and the bank.
+     */
+    @Transactional
+    public void recordCleared(List<Transaction> transactions) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Posting> postings = new ArrayList<>(transactions.size() * 2);
+        for (Transaction transaction : transactions) {
+            addLegs(postings, transaction, CLEARING_ACCOUNT, EXTERNAL_ACCOUNT, now);
+        }
+        postingRepository.saveAll(postings);
+    }
+
+    /**
+     * Books an external transfer the clearing house has returned: the money goes back
+     * from clearing to the account it was debited from.
+     */
+    @Transactional
+    public void recordReturned(Transaction transaction) {
+        List<Posting> postings = new ArrayList<>(2);
+        addLegs(postings, transaction, CLEARING_ACCOUNT, transaction.getFromAccount().getAccountNumber(),
+                LocalDateTime.now());
+        postingRepository.saveAll(postings);
+    }
+
+    /**
+     * The account's balance computed from the ledger: latest snapshot plus later
+     * postings.
+     */
+    public BigDecimal getLedgerBalance(String accountNumber) {
+        Optional<BalanceSnapshot> snapshot = balanceSnapshotRepository
+                .findTopByAccountNumberOrderByLastPostingIdDesc(accountNumber);
+        BigDecimal base = snapshot.map(BalanceSnapshot::getBalance).orElse(BigDecimal.ZERO);
+        long afterId = snapshot.map(BalanceSnapshot::getLastPostingId).orElse(0L);
+        return base.add(postingRepository.sumAfter(accountNumber, afterId));
+    }
+
+    /**
+     * The account's balance as of the given time, from the latest snapshot before it
+     * plus the postings up to it. Before the opening balance of a pre-ledger account
+     * the history is unknown and the result only covers later postings.
+     */
+    public BigDecimal getBalanceAt(String accountNumber, LocalDateTime at) {
+        Optional<BalanceSnapshot> snapshot = balanceSnapshotRepository
+                .findTopByAccountNumberAndAsOfLessThanEqualOrderByLastPostingIdDesc(accountNumber, at);
+        BigDecimal base = snapshot.map(BalanceSnapshot::getBalance).orElse(BigDecimal.ZERO);
+        long afterId = snapshot.map(BalanceSnapshot::getLastPostingId).orElse(0L);
+        return base.add(postingRepository.sumAfterUntil(accountNumber, afterId, at));
+    }
+
+    public List<Posting> getPostings(Long transactionId) {
+        return postingRepository.findByTransactionIdOrderById(transactionId);
+    }
+
+    /**
+     * Compares the materialized balance with the ledger.
+     */
+    public Map<String, Object> verify(String accountNumber) {
+        BigDecimal materialized = accountService.getAccountBalance(accountNumber);
+        BigDecimal ledger = getLedgerBalance(accountNumber);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("accountNumber", accountNumber);
+        result.put("balance", materialized);
+        result.put("ledgerBalance", ledger);
+        result.put("difference", materialized.subtract(ledger));
+        return result;
+    }
+
+    /**
+     * Resets the materialized balance of an account to its ledger balance.
+     */
+    public BigDecimal rebuild(String accountNumber) {
+        try {
+            AccountLockManager.Locked locked = accountLockManager.tryLock(List.of(accountNumber));
+            if (locked == null) {
+                throw new RuntimeException("Account is busy, please try again");
+            }
+            try (locked) {
+                return transactionTemplate.execute(status -> {
+                    Account account = accountService.lockExistingAccounts(List.of(accountNumber)).get(accountNumber);
+                    if (hotAccountService.isHot(accountNumber)) {
+                        // slots are part of the materialized balance; empty them first
+                        hotAccountService.fold(account);
+                    }
+                    BigDecimal ledger = getLedgerBalance(accountNumber);
+                    if (account.getBalance().compareTo(ledger) != 0) {
+                        System.out.println("[LEDGER] Rebuilt " + accountNumber + ": " + account.getBalance() + " -> " + ledger);
+                        account.setBalance(ledger);
+                        accountRepository.save(account);
+                    }
+                    return ledger;
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Rebuild interrupted");
+        }
+    }
+
+    /**
+     * Snapshots every account that has at least {@code snapshot-min-postings}
+     * postings since its last snapshot.
+     */
+    @Scheduled(fixedDelayString = "${banking.ledger.snapshot-interval-ms:600000}")
+    public void takeSnapshots() {
+        Long maxId = postingRepository.findMaxId();
+        if (maxId == null || maxId <= snapshotWatermark) {
+            return;
+        }
+        LocalDateTime before = LocalDateTime.now().minusSeconds(snapshotLagSeconds);
+        int taken = 0;
+        for (Object[] row : postingRepository.countByAccountAfter(snapshotWatermark)) {
+            try {
+                if (takeSnapshot((String) row[0], before)) {
+                    taken++;
+                }
+            } catch (RuntimeException e) {
+                System.err.println("[LEDGER] Failed to snapshot " + row[0] + ": " + e.getMessage());
+            }
+        }
+        snapshotWatermark = maxId;
+        if (taken > 0) {
+            System.out.println("[LEDGER] Took " + taken + " balance snapshot(s)");
+        }
+    }
+
+    private boolean takeSnapshot(String accountNumber, LocalDateTime before) {
+        Optional<BalanceSnapshot> last = balanceSnapshotRepository
+                .findTopByAccountNumberOrderByLastPostingIdDesc(accountNumber);
+        long afterId = last.map(BalanceSnapshot::getLastPostingId).orElse(0L);
+        if (postingRepository.countAfter(accountNumber, afterId) < snapshotMinPostings) {
+            return false;
+        }
+        List<Object[]> newest = postingRepository.findLastBefore(accountNumber, before);
+        if (newest.isEmpty() || (Long) newest.get(0)[0] <= afterId) {
+            return false;
+        }
+        Long upToId = (Long) newest.get(0)[0];
+        BigDecimal balance = last.map(BalanceSnapshot::getBalance).orElse(BigDecimal.ZERO)
+                .add(postingRepository.sumBetween(accountNumber, afterId, upToId));
+        balanceSnapshotRepository.save(new BalanceSnapshot(accountNumber, upToId, balance,
+                (LocalDateTime) newest.get(0)[1]));
+        return true;
+    }
+
+    private static void addLegs(List<Posting> postings, Transaction transaction, String debitAccount,
+                                String creditAccount, LocalDateTime postedAt) {
+        postings.add(new Posting(transaction.getId(), debitAccount, transaction.getAmount().negate(), postedAt));
+        postings.add(new Posting(transaction.getId(), creditAccount, transaction.getAmount(), postedAt));
+    }
+}
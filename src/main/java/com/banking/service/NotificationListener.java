@@ -0,0 +1,13 @@
+package com.banking.service;
+
+import com.banking.dto.TransactionEvent;
+
+/**
+ * In-process receiver of transaction notifications. Every bean implementing it is
+ * called by {@link OutboxRelay} after the transaction has committed, on a relay
+ * worker thread. A listener that throws makes the relay retry the event for all
+ * listeners, so listeners must tolerate seeing an event more than once.
+ */
+public interface NotificationListener {
+    void onTransaction(TransactionEvent event);
+}
@@ -0,0 +1,376 @@
+package com.banking.service;
+
+import com.banking.dto.TransactionEvent;
+import com.banking.model.OutboxEvent;
+import com.banking.repository.AccountRepository;
+import com.banking.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers outbox events to the notification channels: email to the owners of the
+ * accounts involved, and every {@link NotificationListener} bean.
+ *
+ * <p>The relay polls on its own thread, one batch per poll, so slow mail servers
+ * never hold up the application's shared scheduler. It claims a batch of due events
+ * by pushing their next attempt past a lease, so the claiming transaction is short
+ * and no row stays locked during delivery. The batch is delivered on a small worker
+ * pool, each channel throttled to its own rate. Events delivered on every channel
+ * are deleted; failed channels are retried with exponential backoff, and an event
+ * that still fails after {@code max-attempts} is kept as a dead letter.
+ */
+@Service
+public class OutboxRelay {
+
+    // the two alerts of a transfer are tracked apart, so a retry only resends the one that failed
+    static final String EMAIL_DEBIT_CHANNEL = "email-debit";
+    static final String EMAIL_CREDIT_CHANNEL = "email-credit";
+    static final String LISTENERS_CHANNEL = "listeners";
+    // recorded before the alerts were tracked apart; covers both
+    private static final String LEGACY_EMAIL_CHANNEL = "email";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final AccountRepository accountRepository;
+    private final ObjectProvider<MailSender> mailSender;
+    private final ObjectProvider<NotificationListener> listeners;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${banking.outbox.poll-interval-ms:500}")
+    private long pollIntervalMs;
+
+    @Value("${banking.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${banking.outbox.workers:4}")
+    private int workerCount;
+
+    @Value("${banking.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${banking.outbox.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    // how long a claimed batch is hidden from other relays
+    @Value("${banking.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${banking.notifications.email.enabled:true}")
+    private boolean emailEnabled;
+
+    @Value("${banking.notifications.email.from:alerts@banking.local}")
+    private String emailFrom;
+
+    // 0 means unlimited
+    @Value("${banking.notifications.email.max-per-second:10}")
+    private double emailRate;
+
+    @Value("${banking.notifications.listeners.max-per-second:0}")
+    private double listenersRate;
+
+    private ScheduledExecutorService poller;
+    private ExecutorService workers;
+    private RateLimiter emailLimiter;
+    private RateLimiter listenersLimiter;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       AccountRepository accountRepository,
+                       ObjectProvider<MailSender> mailSender,
+                       ObjectProvider<NotificationListener> listeners,
+                       ObjectMapper objectMapper,
+                       PlatformTransactionManager transactionManager) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.accountRepository = accountRepository;
+        this.mailSender = mailSender;
+        this.listeners = listeners;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        emailLimiter = new RateLimiter(emailRate);
+        listenersLimiter = new RateLimiter(listenersRate);
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startPolling() {
+        poller.scheduleWithFixedDelay(this::relay, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        poller.shutdown();
+        poller.awaitTermination(10, TimeUnit.SECONDS);
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void relay() {
+        try {
+            relayBatch();
+        } catch (RuntimeException e) {
+            System.err.println("[OUTBOX] Relay failed: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", outboxEventRepository.countByStatus(OutboxEvent.OutboxStatus.PENDING));
+        stats.put("dead", outboxEventRepository.countByStatus(OutboxEvent.OutboxStatus.DEAD));
+        return stats;
+    }
+
+    public List<OutboxEvent> getDeadLetters() {
+        return outboxEventRepository.findByStatusOrderById(OutboxEvent.OutboxStatus.DEAD, PageRequest.of(0, 100));
+    }
+
+    /**
+     * Puts a dead letter back in the outbox with a fresh set of attempts.
+     */
+    public OutboxEvent retryDeadLetter(Long id) {
+        return transactionTemplate.execute(status -> {
+            OutboxEvent event = outboxEventRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Outbox event not found"));
+            if (event.getStatus() != OutboxEvent.OutboxStatus.DEAD) {
+                throw new RuntimeException("Outbox event is not dead-lettered");
+            }
+            event.setStatus(OutboxEvent.OutboxStatus.PENDING);
+            event.setAttempts(0);
+            event.setNextAttemptAt(LocalDateTime.now());
+            return outboxEventRepository.save(event);
+        });
+    }
+
+    private void relayBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> claimed = transactionTemplate.execute(status -> {
+            List<OutboxEvent> due = outboxEventRepository.findDueForUpdate(
+                    OutboxEvent.OutboxStatus.PENDING, now, PageRequest.of(0, batchSize));
+            for (OutboxEvent event : due) {
+                event.setNextAttemptAt(now.plusSeconds(leaseSeconds));
+            }
+            return outboxEventRepository.saveAll(due);
+        });
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        List<CompletableFuture<Delivery>> deliveries = new ArrayList<>(claimed.size());
+        for (OutboxEvent event : claimed) {
+            deliveries.add(CompletableFuture.supplyAsync(() -> deliver(event), workers));
+        }
+        List<Delivery> results = new ArrayList<>(claimed.size());
+        for (CompletableFuture<Delivery> delivery : deliveries) {
+            results.add(delivery.join());
+        }
+        transactionTemplate.executeWithoutResult(status -> record(results));
+    }
+
+    private Delivery deliver(OutboxEvent event) {
+        Set<String> delivered = new LinkedHashSet<>();
+        if (event.getDeliveredChannels() != null && !event.getDeliveredChannels().isEmpty()) {
+            delivered.addAll(Arrays.asList(event.getDeliveredChannels().split(",")));
+            if (delivered.remove(LEGACY_EMAIL_CHANNEL)) {
+                delivered.add(EMAIL_DEBIT_CHANNEL);
+                delivered.add(EMAIL_CREDIT_CHANNEL);
+            }
+        }
+        TransactionEvent transactionEvent;
+        try {
+            transactionEvent = objectMapper.readValue(event.getPayload(), TransactionEvent.class);
+        } catch (Exception e) {
+            return new Delivery(event.getId(), delivered, "unreadable payload: " + e.getMessage(), true);
+        }
+
+        String error = null;
+        Map<String, String> owners = null;
+        for (String channel : channels()) {
+            if (delivered.contains(channel)) {
+                continue;
+            }
+            try {
+                if (channel.equals(LISTENERS_CHANNEL)) {
+                    notifyListeners(transactionEvent);
+                } else {
+                    if (owners == null) {
+                        owners = ownerEmails(transactionEvent);
+                    }
+                    if (channel.equals(EMAIL_DEBIT_CHANNEL)) {
+                        sendEmail(owners, "Debit", transactionEvent.fromAccountNumber(), transactionEvent);
+                    } else {
+                        sendEmail(owners, "Credit", transactionEvent.toAccountNumber(), transactionEvent);
+                    }
+                }
+                delivered.add(channel);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = channel + ": interrupted";
+                break;
+            } catch (Exception e) {
+                error = channel + ": " + e.getMessage();
+            }
+        }
+        return new Delivery(event.getId(), delivered, error, false);
+    }
+
+    private List<String> channels() {
+        return emailEnabled
+                ? List.of(EMAIL_DEBIT_CHANNEL, EMAIL_CREDIT_CHANNEL, LISTENERS_CHANNEL)
+                : List.of(LISTENERS_CHANNEL);
+    }
+
+    // Sends the alert for one side of the transaction, if that account has an owner to tell
+    private void sendEmail(Map<String, String> owners, String kind, String accountNumber, TransactionEvent event)
+            throws InterruptedException {
+        if (accountNumber == null || !owners.containsKey(accountNumber)) {
+            return;
+        }
+        MailSender sender = mailSender.getIfAvailable();
+        if (sender == null) {
+            throw new IllegalStateException("no mail sender configured");
+        }
+        emailLimiter.acquire();
+        sender.send(alert(owners.get(accountNumber), kind, accountNumber, event));
+    }
+
+    private Map<String, String> ownerEmails(TransactionEvent event) {
+        List<String> accountNumbers = new ArrayList<>(2);
+        if (event.fromAccountNumber() != null) {
+            accountNumbers.add(event.fromAccountNumber());
+        }
+        if (event.toAccountNumber() != null) {
+            accountNumbers.add(event.toAccountNumber());
+        }
+        Map<String, String> owners = new HashMap<>();
+        if (!accountNumbers.isEmpty()) {
+            for (Object[] row : accountRepository.findOwnerEmails(accountNumbers)) {
+                if (row[1] != null) {
+                    owners.put((String) row[0], (String) row[1]);
+                }
+            }
+        }
+        return owners;
+    }
+
+    private SimpleMailMessage alert(String to, String kind, String accountNumber, TransactionEvent event) {
+        String maskedAccount = "XXXX" + accountNumber.substring(Math.max(0, accountNumber.length() - 4));
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(emailFrom);
+        message.setTo(to);
+        message.setSubject(kind + " of " + event.amount() + " on account " + maskedAccount);
+        message.setText(kind + " alert for account " + maskedAccount + "\n\n"
+                + "Transaction ID: " + event.transactionId() + "\n"
+                + "Type: " + event.transactionType() + "\n"
+                + "Amount: " + event.amount() + "\n"
+                + "Status: " + event.status() + "\n"
+                + "Date: " + event.transactionDate() + "\n"
+                + (event.description() != null ? "Description: " + event.description() + "\n" : "")
+                + "\nIf you did not make this transaction, please contact the bank immediately.\n");
+        return message;
+    }
+
+    private void notifyListeners(TransactionEvent event) throws InterruptedException {
+        listenersLimiter.acquire();
+        listeners.orderedStream().forEach(listener -> listener.onTransaction(event));
+    }
+
+    private void record(List<Delivery> results) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Delivery> byId = new HashMap<>();
+        for (Delivery result : results) {
+            byId.put(result.eventId(), result);
+        }
+        List<OutboxEvent> done = new ArrayList<>();
+        List<OutboxEvent> failed = new ArrayList<>();
+        for (OutboxEvent event : outboxEventRepository.findAllById(byId.keySet())) {
+            Delivery result = byId.get(event.getId());
+            if (result.error() == null) {
+                done.add(event);
+                continue;
+            }
+            event.setAttempts(event.getAttempts() + 1);
+            event.setDeliveredChannels(String.join(",", result.delivered()));
+            event.setLastError(result.error().length() > 500 ? result.error().substring(0, 500) : result.error());
+            if (result.permanent() || event.getAttempts() >= maxAttempts) {
+                event.setStatus(OutboxEvent.OutboxStatus.DEAD);
+                System.err.println("[OUTBOX] Dead-lettered event " + event.getId() + " after "
+                        + event.getAttempts() + " attempt(s): " + event.getLastError());
+            } else {
+                long backoff = retryBackoffMs << Math.min(event.getAttempts() - 1, 20);
+                event.setNextAttemptAt(now.plusNanos(Math.min(backoff, TimeUnit.HOURS.toMillis(1)) * 1_000_000));
+            }
+            failed.add(event);
+        }
+        outboxEventRepository.deleteAllInBatch(done);
+        outboxEventRepository.saveAll(failed);
+    }
+
+    private record Delivery(Long eventId, Set<String> delivered, String error, boolean permanent) {
+    }
+
+    // Spaces out permits evenly; callers beyond the rate sleep until their slot
+    private static class RateLimiter {
+        private final long intervalNanos;
+        private long nextSlot;
+
+        RateLimiter(double perSecond) {
+            this.intervalNanos = perSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / perSecond) : 0;
+            this.nextSlot = System.nanoTime();
+        }
+
+        void acquire() throws InterruptedException {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(nextSlot, now);
+                nextSlot = slot + intervalNanos;
+                wait = slot - now;
+            }
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+}
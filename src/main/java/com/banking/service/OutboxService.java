@@ -0,0 +1,53 @@
+package com.banking.service;
+
+import com.banking.dto.TransactionEvent;
+import com.banking.model.OutboxEvent;
+import com.banking.model.Transaction;
+import com.banking.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes notifications into the outbox, in the caller's database transaction, so a
+ * notification exists exactly when the change it announces has committed. Delivery
+ * is left to {@link OutboxRelay}.
+ */
+@Service
+public class OutboxService {
+
+    public static final String TRANSACTION_EVENT = "TRANSACTION";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional
+    public void add(Transaction transaction) {
+        addAll(List.of(transaction));
+    }
+
+    @Transactional
+    public void addAll(List<Transaction> transactions) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            try {
+                events.add(new OutboxEvent(TRANSACTION_EVENT,
+                        objectMapper.writeValueAsString(TransactionEvent.of(transaction)), now));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Could not serialize notification for " + transaction.getTransactionId(), e);
+            }
+        }
+        outboxEventRepository.saveAll(events);
+    }
+}
@@ -0,0 +1,495 @@
+package com.banking.service;
+
+import com.banking.model.Account;
+import com.banking.model.Transaction;
+import com.banking.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Optional execution mode for internal transfers. Instead of each request thread
+ * locking and committing its own transfer, transfers are routed by source account
+ * to a fixed set of partitions. Each partition is a single thread. It collects
+ * queued transfers for a few milliseconds (or until a group is full), applies the
+ * whole group in one database transaction and then completes the callers' futures.
+ *
+ * <p>A partition only locks accounts it owns, so partitions do not contend with
+ * each other. When the destination account belongs to another partition, the
+ * transfer is done in two ordered steps:
+ * <ol>
+ *   <li>the source partition debits the source account and saves the transaction
+ *       as {@code PENDING};</li>
+ *   <li>the destination partition credits the destination account and marks the
+ *       transaction {@code COMPLETED}.</li>
+ * </ol>
+ * The caller is answered after the second step. Pending credits left behind by a
+ * shutdown are finished at the next startup; their callers are told so rather than
+ * kept waiting. A caller also stops waiting after {@code response-timeout-ms}, and a
+ * transfer that no partition has started by then is never applied.
+ */
+@Component
+public class PartitionedTransferExecutor {
+
+    private static final int MAX_CREDIT_ATTEMPTS = 5;
+
+    private final AccountService accountService;
+    private final TransactionRepository transactionRepository;
+    private final XmlMirrorService xmlMirrorService;
+    private final OutboxService outboxService;
+    private final LedgerService ledgerService;
+    private final AccountLockManager accountLockManager;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${banking.transfers.partitioned.enabled:false}")
+    private boolean enabled;
+
+    // 0 = one partition per core
+    @Value("${banking.transfers.partitioned.partitions:0}")
+    private int partitionCount;
+
+    @Value("${banking.transfers.partitioned.max-group-size:256}")
+    private int maxGroupSize;
+
+    @Value("${banking.transfers.partitioned.max-delay-ms:2}")
+    private long maxDelayMs;
+
+    @Value("${banking.transfers.partitioned.response-timeout-ms:30000}")
+    private long responseTimeoutMs;
+
+    private Partition[] partitions;
+    private volatile boolean running;
+
+    public PartitionedTransferExecutor(AccountService accountService,
+                                       TransactionRepository transactionRepository,
+                                       XmlMirrorService xmlMirrorService,
+                                       OutboxService outboxService,
+                                       LedgerService ledgerService,
+                                       AccountLockManager accountLockManager,
+                                       PlatformTransactionManager transactionManager) {
+        this.accountService = accountService;
+        this.transactionRepository = transactionRepository;
+        this.xmlMirrorService = xmlMirrorService;
+        this.outboxService = outboxService;
+        this.ledgerService = ledgerService;
+        this.accountLockManager = accountLockManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        int count = partitionCount > 0 ? partitionCount : Runtime.getRuntime().availableProcessors();
+        partitions = new Partition[count];
+        running = true;
+        for (int i = 0; i < count; i++) {
+            partitions[i] = new Partition(i);
+            partitions[i].thread.start();
+        }
+        System.out.println("[TRANSFER] Partitioned executor started with " + count + " partitions");
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (partitions == null) {
+            return;
+        }
+        // Partitions finish what is already queued, including pending credits
+        running = false;
+        for (Partition partition : partitions) {
+            partition.thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        // Steps queued after a partition had exited, e.g. the credit of a transfer whose
+        // debit committed on a partition that was still draining
+        for (Partition partition : partitions) {
+            Step step;
+            while ((step = partition.queue.poll()) != null) {
+                abandon(step);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return partitions != null && running;
+    }
+
+    /**
+     * Queues an internal transfer on its source account's partition and waits until
+     * it has been committed, or until the response timeout.
+     */
+    public Transaction transfer(String fromAccountNumber, String toAccountNumber,
+                                BigDecimal amount, String description) {
+        if (!running) {
+            throw new RuntimeException("Transfer service is shutting down, please try again");
+        }
+        Transfer transfer = new Transfer(fromAccountNumber, toAccountNumber, amount, description);
+        partitionOf(fromAccountNumber).queue.add(new Step(transfer, false, 1));
+        try {
+            return transfer.future.get(responseTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            if (transfer.started.compareAndSet(false, true)) {
+                // no partition will pick it up now
+                throw new RuntimeException("Transfer timed out before it was applied, please try again");
+            }
+            throw notSettled(transfer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (transfer.started.compareAndSet(false, true)) {
+                throw new RuntimeException("Transaction interrupted");
+            }
+            throw notSettled(transfer);
+        }
+    }
+
+    // the debit may already be committed, so the caller must not simply try again
+    private static TransferNotSettledException notSettled(Transfer transfer) {
+        Long transactionId = transfer.transactionId;
+        return transactionId != null
+                ? TransferNotSettledException.creditPending(transactionId)
+                : TransferNotSettledException.unknown();
+    }
+
+    /**
+     * Finishes transfers whose source was debited but whose destination was not yet
+     * credited when the application stopped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void resumePendingCredits() {
+        List<Transaction> pending = transactionRepository.findWithToAccountByStatusAndType(
+                Transaction.TransactionStatus.PENDING, Transaction.TransactionType.TRANSFER);
+        if (pending.isEmpty()) {
+            return;
+        }
+        System.out.println("[TRANSFER] Resuming " + pending.size() + " pending credit(s)");
+        for (Transaction transaction : pending) {
+            Transfer transfer = new Transfer(null, transaction.getToAccount().getAccountNumber(),
+                    transaction.getAmount(), transaction.getDescription());
+            transfer.transactionId = transaction.getId();
+            Step step = new Step(transfer, true, 1);
+            if (isEnabled()) {
+                partitionOf(transfer.toAccountNumber).queue.add(step);
+            } else {
+                try {
+                    applyCredits(List.of(step));
+                } catch (RuntimeException e) {
+                    System.err.println("[TRANSFER] Failed to resume credit of transaction "
+                            + transaction.getId() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Partition partitionOf(String accountNumber) {
+        int hash = accountNumber.hashCode();
+        return partitions[Math.floorMod(hash ^ (hash >>> 16), partitions.length)];
+    }
+
+    private void process(Partition partition, List<Step> group) {
+        List<Step> debits = new ArrayList<>();
+        List<Step> credits = new ArrayList<>();
+        for (Step step : group) {
+            if (step.credit()) {
+                credits.add(step);
+            } else if (step.transfer().started.compareAndSet(false, true)) {
+                debits.add(step);
+            }
+            // otherwise its caller timed out waiting and was told it was not applied
+        }
+        if (!debits.isEmpty()) {
+            commitGroup(partition, debits);
+        }
+        if (!credits.isEmpty()) {
+            commitGroup(partition, credits);
+        }
+    }
+
+    /**
+     * Commits a group of steps of one kind. If the group as a whole cannot be
+     * committed (a lock timeout, say), its steps are retried one at a time so a
+     * single failure only affects its own caller.
+     */
+    private void commitGroup(Partition partition, List<Step> steps) {
+        try {
+            if (steps.get(0).credit()) {
+                applyCredits(steps);
+            } else {
+                applyDebits(partition, steps);
+            }
+            return;
+        } catch (RuntimeException e) {
+            if (steps.size() > 1) {
+                for (Step step : steps) {
+                    commitGroup(partition, List.of(step));
+                }
+                return;
+            }
+            Step step = steps.get(0);
+            if (!step.credit()) {
+                step.transfer().future.completeExceptionally(new RuntimeException("Transaction failed: " + e.getMessage()));
+            } else if (step.attempt() < MAX_CREDIT_ATTEMPTS && running) {
+                partition.queue.add(new Step(step.transfer(), true, step.attempt() + 1));
+            } else {
+                // The debit is committed; the credit is resumed at the next startup
+                System.err.println("[TRANSFER] Credit of transaction " + step.transfer().transactionId
+                        + " left pending: " + e.getMessage());
+                step.transfer().future.completeExceptionally(
+                        TransferNotSettledException.creditPending(step.transfer().transactionId));
+            }
+        }
+    }
+
+    private void applyDebits(Partition partition, List<Step> steps) {
+        Set<String> debited = new LinkedHashSet<>();
+        Set<String> creditedHere = new LinkedHashSet<>();
+        Set<String> accountNumbers = new LinkedHashSet<>();
+        for (Step step : steps) {
+            Transfer transfer = step.transfer();
+            debited.add(transfer.fromAccountNumber);
+            if (partitionOf(transfer.toAccountNumber) == partition) {
+                creditedHere.add(transfer.toAccountNumber);
+            }
+            accountNumbers.add(transfer.fromAccountNumber);
+            accountNumbers.add(transfer.toAccountNumber);
+        }
+        List<String> locked = accountService.accountsToLock(debited, creditedHere);
+        List<String> errors = new ArrayList<>();
+        List<Transaction> transactions = new ArrayList<>();
+
+        AccountLockManager.Locked locks = lock(locked);
+        try (locks) {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<String, Account> accounts = accountService.loadForBalanceChange(locked, accountNumbers);
+                LocalDateTime now = LocalDateTime.now();
+                List<Transaction> completed = new ArrayList<>();
+                for (Step step : steps) {
+                    Transfer transfer = step.transfer();
+                    Account fromAccount = accounts.get(transfer.fromAccountNumber);
+                    Account toAccount = accounts.get(transfer.toAccountNumber);
+                    String error = validate(transfer, fromAccount, toAccount);
+                    errors.add(error);
+                    if (error != null) {
+                        transactions.add(null);
+                        continue;
+                    }
+
+                    accountService.updateBalance(fromAccount, transfer.amount.negate());
+                    Transaction transaction = new Transaction();
+                    transaction.setFromAccount(fromAccount);
+                    transaction.setToAccount(toAccount);
+                    transaction.setAmount(transfer.amount);
+                    transaction.setTransactionType(Transaction.TransactionType.TRANSFER);
+                    transaction.setDescription(transfer.description != null ? transfer.description : "Fund transfer");
+                    transaction.setTransactionDate(now);
+                    if (creditedHere.contains(transfer.toAccountNumber)) {
+                        accountService.updateBalance(toAccount, transfer.amount);
+                        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+                        completed.add(transaction);
+                    } else {
+                        // credited by the destination's partition once this commits
+                        transaction.setStatus(Transaction.TransactionStatus.PENDING);
+                    }
+                    transactions.add(transaction);
+                }
+                List<Transaction> saved = transactionRepository.saveAll(
+                        transactions.stream().filter(t -> t != null).toList());
+                ledgerService.recordAll(saved);
+                xmlMirrorService.mirrorAll(completed);
+                outboxService.addAll(completed);
+            });
+        }
+
+        for (int i = 0; i < steps.size(); i++) {
+            Transfer transfer = steps.get(i).transfer();
+            Transaction transaction = transactions.get(i);
+            if (errors.get(i) != null) {
+                transfer.future.completeExceptionally(new RuntimeException(errors.get(i)));
+            } else if (transaction.getStatus() == Transaction.TransactionStatus.COMPLETED) {
+                transfer.future.complete(transaction);
+            } else {
+                transfer.transactionId = transaction.getId();
+                if (running) {
+                    partitionOf(transfer.toAccountNumber).queue.add(new Step(transfer, true, 1));
+                } else {
+                    // the destination's partition may already have stopped
+                    abandon(new Step(transfer, true, 1));
+                }
+            }
+        }
+    }
+
+    private void applyCredits(List<Step> steps) {
+        Set<String> credited = new LinkedHashSet<>();
+        for (Step step : steps) {
+            credited.add(step.transfer().toAccountNumber);
+        }
+        List<String> locked = accountService.accountsToLock(List.of(), credited);
+        // one per step, in order, to complete the callers' futures
+        List<Transaction> completed = new ArrayList<>();
+
+        AccountLockManager.Locked locks = lock(locked);
+        try (locks) {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<String, Account> accounts = accountService.lockForBalanceChange(locked, credited);
+                List<Transaction> settledNow = new ArrayList<>();
+                for (Step step : steps) {
+                    Transaction transaction = transactionRepository.findById(step.transfer().transactionId)
+                            .orElseThrow(() -> new RuntimeException("Transaction not found"));
+                    completed.add(transaction);
+                    if (transaction.getStatus() != Transaction.TransactionStatus.PENDING) {
+                        // already credited, mirrored and notified, e.g. resumed twice
+                        continue;
+                    }
+                    accountService.updateBalance(accounts.get(step.transfer().toAccountNumber), transaction.getAmount());
+                    transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+                    ledgerService.recordSettlement(transaction);
+                    settledNow.add(transaction);
+                }
+                transactionRepository.saveAll(settledNow);
+                xmlMirrorService.mirrorAll(settledNow);
+                outboxService.addAll(settledNow);
+            });
+        }
+
+        for (int i = 0; i < steps.size(); i++) {
+            steps.get(i).transfer().future.complete(completed.get(i));
+        }
+    }
+
+    /**
+     * Answers the caller of a step that will not be processed before shutdown. A
+     * debited transfer's credit is resumed at the next startup.
+     */
+    private void abandon(Step step) {
+        Transfer transfer = step.transfer();
+        if (step.credit()) {
+            System.err.println("[TRANSFER] Credit of transaction " + transfer.transactionId
+                    + " left pending at shutdown");
+            transfer.future.completeExceptionally(
+                    TransferNotSettledException.creditPending(transfer.transactionId));
+        } else if (transfer.started.compareAndSet(false, true)) {
+            transfer.future.completeExceptionally(
+                    new RuntimeException("Transfer service is shutting down, please try again"));
+        }
+    }
+
+    private AccountLockManager.Locked lock(List<String> accountNumbers) {
+        try {
+            AccountLockManager.Locked locked = accountLockManager.tryLock(accountNumbers);
+            if (locked == null) {
+                throw new RuntimeException("Account is busy, please try again");
+            }
+            return locked;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Transaction interrupted");
+        }
+    }
+
+    private String validate(Transfer transfer, Account fromAccount, Account toAccount) {
+        if (transfer.amount == null || transfer.amount.signum() <= 0) {
+            return "Amount must be greater than 0";
+        }
+        if (fromAccount == null || toAccount == null) {
+            return "Account not found";
+        }
+        if (fromAccount.getId().equals(toAccount.getId())) {
+            return "Cannot transfer to the same account";
+        }
+        if (!accountService.hasSufficientBalance(fromAccount, transfer.amount)) {
+            return "Insufficient balance";
+        }
+        return null;
+    }
+
+    private static class Transfer {
+        private final String fromAccountNumber;
+        private final String toAccountNumber;
+        private final BigDecimal amount;
+        private final String description;
+        private final CompletableFuture<Transaction> future = new CompletableFuture<>();
+        // claimed by the partition before debiting, or by a caller that gave up waiting
+        private final AtomicBoolean started = new AtomicBoolean();
+        // set once the debit step has committed
+        private volatile Long transactionId;
+
+        Transfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount, String description) {
+            this.fromAccountNumber = fromAccountNumber;
+            this.toAccountNumber = toAccountNumber;
+            this.amount = amount;
+            this.description = description;
+        }
+    }
+
+    private record Step(Transfer transfer, boolean credit, int attempt) {
+    }
+
+    private class Partition {
+        private final BlockingQueue<Step> queue = new LinkedBlockingQueue<>();
+        private final Thread thread;
+
+        Partition(int index) {
+            thread = new Thread(this::run, "transfer-partition-" + index);
+            thread.setDaemon(true);
+        }
+
+        private void run() {
+            List<Step> group = new ArrayList<>(maxGroupSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    Step first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    // Gather more steps until the group is full or the delay has passed
+                    group.add(first);
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+                    while (group.size() < maxGroupSize) {
+                        long remaining = deadline - System.nanoTime();
+                        Step next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                        if (next == null) {
+                            break;
+                        }
+                        group.add(next);
+                    }
+                    process(this, group);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    System.err.println("[TRANSFER] Partition error: " + e.getMessage());
+                    for (Step step : group) {
+                        step.transfer().future.completeExceptionally(e);
+                    }
+                } finally {
+                    group.clear();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.banking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Analytics over the columnar export of the XML transaction history. The export
+ * parses the XML once; aggregations then scan memory-mapped primitive columns.
+ */
+@Service
+public class TransactionAnalyticsService {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private final XmlTransactionService xmlTransactionService;
+
+    @Value("${banking.transactions.columnar.path:./data/transactions.cols}")
+    private String columnarFilePath;
+
+    public TransactionAnalyticsService(XmlTransactionService xmlTransactionService) {
+        this.xmlTransactionService = xmlTransactionService;
+    }
+
+    /**
+     * Rewrites the column file from the XML store and returns the row count.
+     */
+    public synchronized long exportColumnar() {
+        try (TransactionColumnFile.Writer writer = new TransactionColumnFile.Writer(columnarPath());
+             Stream<XmlTransactionService.TransactionXml> transactions =
+                     xmlTransactionService.streamTransactions(t -> true)) {
+            for (XmlTransactionService.TransactionXml t :
+                    (Iterable<XmlTransactionService.TransactionXml>) transactions::iterator) {
+                writer.add(TransactionColumnFile.toEpochMillis(LocalDateTime.parse(t.getTransactionDate())),
+                        TransactionColumnFile.toMinorUnits(new BigDecimal(t.getAmount())),
+                        t.getFromAccountNumber(), t.getToAccountNumber(),
+                        t.getTransactionType(), t.getStatus());
+            }
+            writer.finish();
+            return writer.rows();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to export transactions: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Total amount moved in or out of each account.
+     */
+    public Map<String, BigDecimal> sumByAccount() {
+        try (TransactionColumnFile columns = openColumns()) {
+            long[] totals = new long[columns.accountCount()];
+            LongBuffer amounts = columns.amounts();
+            IntBuffer from = columns.fromAccounts();
+            IntBuffer to = columns.toAccounts();
+            for (int i = 0, rows = columns.rows(); i < rows; i++) {
+                long amount = amounts.get(i);
+                int fromId = from.get(i);
+                int toId = to.get(i);
+                if (fromId != TransactionColumnFile.NO_ACCOUNT) {
+                    totals[fromId] += amount;
+                }
+                if (toId != TransactionColumnFile.NO_ACCOUNT && toId != fromId) {
+                    totals[toId] += amount;
+                }
+            }
+            Map<String, BigDecimal> result = new TreeMap<>();
+            for (int id = 0; id < totals.length; id++) {
+                result.put(columns.account(id), TransactionColumnFile.fromMinorUnits(totals[id]));
+            }
+            return result;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read transaction columns: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Transaction count and total amount per calendar day, optionally for one type.
+     */
+    public Map<LocalDate, Map<String, Object>> volumeByDay(String transactionType) {
+        try (TransactionColumnFile columns = openColumns()) {
+            int typeId = -1;
+            if (transactionType != null) {
+                for (int id = 0; id < columns.typeCount(); id++) {
+                    if (columns.typeName(id).equals(transactionType)) {
+                        typeId = id;
+                    }
+                }
+                if (typeId < 0) {
+                    return new TreeMap<>();
+                }
+            }
+
+            TreeMap<Long, long[]> days = new TreeMap<>();
+            LongBuffer timestamps = columns.timestamps();
+            LongBuffer amounts = columns.amounts();
+            ByteBuffer types = columns.types();
+            long currentDay = Long.MIN_VALUE;
+            long[] current = null;
+            for (int i = 0, rows = columns.rows(); i < rows; i++) {
+                if (typeId >= 0 && types.get(i) != typeId) {
+                    continue;
+                }
+                long day = Math.floorDiv(timestamps.get(i), MILLIS_PER_DAY);
+                if (day != currentDay) {
+                    // rows are mostly in date order, so the map is rarely touched
+                    currentDay = day;
+                    current = days.computeIfAbsent(day, d -> new long[2]);
+                }
+                current[0]++;
+                current[1] += amounts.get(i);
+            }
+
+            Map<LocalDate, Map<String, Object>> result = new LinkedHashMap<>();
+            days.forEach((day, totals) -> {
+                Map<String, Object> volume = new LinkedHashMap<>();
+                volume.put("count", totals[0]);
+                volume.put("amount", TransactionColumnFile.fromMinorUnits(totals[1]));
+                result.put(LocalDate.ofEpochDay(day), volume);
+            });
+            return result;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read transaction columns: " + e.getMessage(), e);
+        }
+    }
+
+    private TransactionColumnFile openColumns() throws IOException {
+        Path path = columnarPath();
+        if (!Files.exists(path)) {
+            exportColumnar();
+        }
+        return TransactionColumnFile.open(path);
+    }
+
+    private Path columnarPath() {
+        return Paths.get(columnarFilePath);
+    }
+}
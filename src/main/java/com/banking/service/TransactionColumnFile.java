@@ -0,0 +1,346 @@
+package com.banking.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar binary copy of the transaction history for analytics. Every column is a
+ * fixed-width array, so a reader maps the file and scans the columns it needs as
+ * primitive buffers without parsing anything.
+ *
+ * <pre>
+ * header   int magic, int version, long rows, 7 x long section offsets (72 bytes, padded to 80)
+ * columns  long timestamp[rows]   transaction time in epoch millis (local time taken as UTC)
+ *          long amount[rows]      amount in minor units (1/100)
+ *          int  fromAccount[rows] account dictionary id, -1 if none
+ *          int  toAccount[rows]   account dictionary id, -1 if none
+ *          byte type[rows]        type dictionary id
+ *          byte status[rows]      status dictionary id
+ * dicts    accounts, types, statuses: int count, then count x (short length, UTF-8 bytes)
+ * </pre>
+ *
+ * All values are little-endian. Sections start on 8-byte boundaries.
+ */
+class TransactionColumnFile implements AutoCloseable {
+
+    static final int MAGIC = 0x54584331; // "TXC1"
+    static final int VERSION = 1;
+    static final int NO_ACCOUNT = -1;
+    static final int AMOUNT_SCALE = 2;
+
+    private static final int HEADER_SIZE = 80;
+    private static final int COLUMNS = 6;
+
+    private final FileChannel channel;
+    private final long rows;
+    private final LongBuffer timestamps;
+    private final LongBuffer amounts;
+    private final IntBuffer fromAccounts;
+    private final IntBuffer toAccounts;
+    private final ByteBuffer types;
+    private final ByteBuffer statuses;
+    private final String[] accounts;
+    private final String[] typeNames;
+    private final String[] statusNames;
+
+    private TransactionColumnFile(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a transaction column file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported column file version " + version);
+            }
+            rows = header.getLong();
+            long[] offsets = new long[COLUMNS + 1];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = header.getLong();
+            }
+            timestamps = map(offsets[0], rows * Long.BYTES).asLongBuffer();
+            amounts = map(offsets[1], rows * Long.BYTES).asLongBuffer();
+            fromAccounts = map(offsets[2], rows * Integer.BYTES).asIntBuffer();
+            toAccounts = map(offsets[3], rows * Integer.BYTES).asIntBuffer();
+            types = map(offsets[4], rows);
+            statuses = map(offsets[5], rows);
+
+            ByteBuffer dictionaries = map(offsets[6], channel.size() - offsets[6]);
+            accounts = readDictionary(dictionaries);
+            typeNames = readDictionary(dictionaries);
+            statusNames = readDictionary(dictionaries);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static TransactionColumnFile open(Path path) throws IOException {
+        return new TransactionColumnFile(path);
+    }
+
+    int rows() {
+        return (int) rows;
+    }
+
+    LongBuffer timestamps() {
+        return timestamps.duplicate();
+    }
+
+    LongBuffer amounts() {
+        return amounts.duplicate();
+    }
+
+    IntBuffer fromAccounts() {
+        return fromAccounts.duplicate();
+    }
+
+    IntBuffer toAccounts() {
+        return toAccounts.duplicate();
+    }
+
+    ByteBuffer types() {
+        return types.duplicate();
+    }
+
+    ByteBuffer statuses() {
+        return statuses.duplicate();
+    }
+
+    String account(int id) {
+        return id == NO_ACCOUNT ? null : accounts[id];
+    }
+
+    int accountCount() {
+        return accounts.length;
+    }
+
+    String typeName(int id) {
+        return typeNames[id];
+    }
+
+    int typeCount() {
+        return typeNames.length;
+    }
+
+    String statusName(int id) {
+        return statusNames[id];
+    }
+
+    int statusCount() {
+        return statusNames.length;
+    }
+
+    static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static long toMinorUnits(BigDecimal amount) {
+        return amount.movePointRight(AMOUNT_SCALE).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+    }
+
+    static BigDecimal fromMinorUnits(long amount) {
+        return BigDecimal.valueOf(amount, AMOUNT_SCALE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private MappedByteBuffer map(long offset, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static String[] readDictionary(ByteBuffer buffer) {
+        String[] values = new String[buffer.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    /**
+     * Streams rows into one temporary file per column, then assembles the column
+     * file and moves it into place, so memory use does not grow with the row count.
+     */
+    static class Writer implements AutoCloseable {
+
+        private final Path target;
+        private final Path[] columnFiles = new Path[COLUMNS];
+        private final DataOutputStream[] columns = new DataOutputStream[COLUMNS];
+        private final Dictionary accounts = new Dictionary();
+        private final Dictionary types = new Dictionary();
+        private final Dictionary statuses = new Dictionary();
+        private long rows;
+        private boolean finished;
+
+        Writer(Path target) throws IOException {
+            this.target = target;
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            for (int i = 0; i < COLUMNS; i++) {
+                columnFiles[i] = Files.createTempFile(target.toAbsolutePath().getParent(),
+                        target.getFileName() + ".col" + i + "-", ".tmp");
+                columns[i] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(columnFiles[i]),
+                        64 * 1024));
+            }
+        }
+
+        void add(long timestamp, long amount, String fromAccount, String toAccount, String type, String status)
+                throws IOException {
+            // DataOutputStream is big-endian; the file is little-endian
+            columns[0].writeLong(Long.reverseBytes(timestamp));
+            columns[1].writeLong(Long.reverseBytes(amount));
+            columns[2].writeInt(Integer.reverseBytes(fromAccount != null ? accounts.id(fromAccount) : NO_ACCOUNT));
+            columns[3].writeInt(Integer.reverseBytes(toAccount != null ? accounts.id(toAccount) : NO_ACCOUNT));
+            columns[4].writeByte(types.byteId(type));
+            columns[5].writeByte(statuses.byteId(status));
+            rows++;
+        }
+
+        long rows() {
+            return rows;
+        }
+
+        /**
+         * Writes the header and dictionaries around the columns, forces the file to
+         * disk and atomically replaces the target.
+         */
+        void finish() throws IOException {
+            for (DataOutputStream column : columns) {
+                column.close();
+            }
+            long[] widths = {Long.BYTES, Long.BYTES, Integer.BYTES, Integer.BYTES, 1, 1};
+            long[] offsets = new long[COLUMNS + 1];
+            long position = HEADER_SIZE;
+            for (int i = 0; i < COLUMNS; i++) {
+                offsets[i] = position;
+                position = align(position + rows * widths[i]);
+            }
+            offsets[COLUMNS] = position;
+
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putLong(rows);
+                for (long offset : offsets) {
+                    header.putLong(offset);
+                }
+                header.clear();
+                writeFully(out, header, 0);
+                for (int i = 0; i < COLUMNS; i++) {
+                    try (FileChannel in = FileChannel.open(columnFiles[i], StandardOpenOption.READ)) {
+                        long size = in.size();
+                        long copied = 0;
+                        while (copied < size) {
+                            copied += in.transferTo(copied, size - copied, out.position(offsets[i] + copied));
+                        }
+                    }
+                }
+                ByteBuffer dictionaries = ByteBuffer.wrap(encode(accounts, types, statuses));
+                writeFully(out, dictionaries, offsets[COLUMNS]);
+                out.force(true);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (DataOutputStream column : columns) {
+                if (column != null) {
+                    column.close();
+                }
+            }
+            for (Path columnFile : columnFiles) {
+                if (columnFile != null) {
+                    Files.deleteIfExists(columnFile);
+                }
+            }
+            if (!finished) {
+                Files.deleteIfExists(target.resolveSibling(target.getFileName() + ".tmp"));
+            }
+        }
+
+        private static long align(long position) {
+            return (position + 7) & ~7L;
+        }
+
+        private static void writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                out.write(buffer, position + buffer.position());
+            }
+        }
+
+        private static byte[] encode(Dictionary... dictionaries) {
+            int size = 0;
+            List<byte[][]> encoded = new ArrayList<>();
+            for (Dictionary dictionary : dictionaries) {
+                byte[][] values = new byte[dictionary.values.size()][];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = dictionary.values.get(i).getBytes(StandardCharsets.UTF_8);
+                    size += Short.BYTES + values[i].length;
+                }
+                size += Integer.BYTES;
+                encoded.add(values);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            for (byte[][] values : encoded) {
+                buffer.putInt(values.length);
+                for (byte[] value : values) {
+                    buffer.putShort((short) value.length).put(value);
+                }
+            }
+            return buffer.array();
+        }
+    }
+
+    // Assigns dense ids to distinct strings in first-seen order
+    private static class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int id(String value) {
+            return ids.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        byte byteId(String value) {
+            int id = id(value != null ? value : "");
+            if (id > Byte.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct values for a byte column: " + value);
+            }
+            return (byte) id;
+        }
+    }
+}
@@ -1,39 +1,101 @@
 package com.banking.service;
 
+import com.banking.dto.BatchTransferResult;
+import com.banking.dto.TransactionPage;
+import com.banking.dto.TransactionView;
+import com.banking.dto.TransferRequest;
 import com.banking.model.Account;
 import com.banking.model.Transaction;
 import com.banking.repository.AccountRepository;
 import com.banking.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 @Service
 public class TransactionService {
 
+    private static final Pattern IFSC_PATTERN = Pattern.compile("[A-Z]{4}0[A-Z0-9]{6}");
+    // bank account numbers are 9 to 18 digits; they go into clearing files as is
+    private static final Pattern BENEFICIARY_ACCOUNT_PATTERN = Pattern.compile("\\d{9,18}");
+    // open ends of the history for keyset pagination
+    private static final LocalDateTime EARLIEST_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST_DATE = LocalDateTime.of(9999, 12, 31, 23, 59);
+
     private final TransactionRepository transactionRepository;
     private final AccountService accountService;
-    private final XmlTransactionService xmlTransactionService;
+    private final XmlMirrorService xmlMirrorService;
+    private final OutboxService outboxService;
+    private final LedgerService ledgerService;
+    private final AccountLockManager accountLockManager;
+    private final PartitionedTransferExecutor partitionedTransferExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${banking.transfers.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${banking.transfers.retry-backoff-ms:20}")
+    private long retryBackoffMs;
+
+    @Value("${banking.transfers.batch.max-size:5000}")
+    private int maxBatchSize;
 
     public TransactionService(TransactionRepository transactionRepository,
                              AccountService accountService,
-                             XmlTransactionService xmlTransactionService) {
+                             XmlMirrorService xmlMirrorService,
+                             OutboxService outboxService,
+                             LedgerService ledgerService,
+                             AccountLockManager accountLockManager,
+                             PartitionedTransferExecutor partitionedTransferExecutor,
+                             PlatformTransactionManager transactionManager) {
         this.transactionRepository = transactionRepository;
         this.accountService = accountService;
-        this.xmlTransactionService = xmlTransactionService;
+        this.xmlMirrorService = xmlMirrorService;
+        this.outboxService = outboxService;
+        this.ledgerService = ledgerService;
+        this.accountLockManager = accountLockManager;
+        this.partitionedTransferExecutor = partitionedTransferExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
     public Transaction transferFunds(String fromAccountNumber, String toAccountNumber,
                                      BigDecimal amount, String description) {
-        Account fromAccount = accountService.getAccountByNumber(fromAccountNumber);
-        Account toAccount = accountService.getAccountByNumber(toAccountNumber);
+        // Catches mistyped destination numbers without a database lookup
+        if (!AccountNumberAllocator.isValid(toAccountNumber)) {
+            throw new RuntimeException("Invalid account number");
+        }
+        if (partitionedTransferExecutor.isEnabled()) {
+            return partitionedTransferExecutor.transfer(fromAccountNumber, toAccountNumber, amount, description);
+        }
+        List<String> locked = accountService.accountsToLock(List.of(fromAccountNumber), List.of(toAccountNumber));
+        return inLockedTransaction(locked, () -> {
+            Map<String, Account> accounts = accountService.lockForBalanceChange(locked,
+                    List.of(fromAccountNumber, toAccountNumber));
+            return doTransferFunds(accounts.get(fromAccountNumber), accounts.get(toAccountNumber),
+                    amount, description);
+        });
+    }
 
+    private Transaction doTransferFunds(Account fromAccount, Account toAccount,
+                                        BigDecimal amount, String description) {
         // Validate sufficient balance
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
+        if (!accountService.hasSufficientBalance(fromAccount, amount)) {
             throw new RuntimeException("Insufficient balance");
         }
 
@@ -69,9 +131,11 @@ public class TransactionService {
             transaction = transactionRepository.save(transaction);
             
             System.out.println("[TRANSFER] Transaction saved with ID: " + transaction.getId());
+            ledgerService.record(transaction);
 
-            // Save to XML
-            xmlTransactionService.saveTransactionToXml(transaction);
+            // Mirror to XML once committed
+            xmlMirrorService.mirror(transaction);
+            outboxService.add(transaction);
 
             return transaction;
         } catch (Exception e) {
@@ -82,12 +146,151 @@ public class TransactionService {
         }
     }
 
-    @Transactional
+    /**
+     * Applies many internal transfers in one database transaction. The accounts
+     * involved are locked and loaded with a single query, balances are moved in
+     * memory, and the inserts and balance updates go out as JDBC batches at commit.
+     * With {@code atomic}, the first invalid transfer rolls back the whole batch;
+     * otherwise invalid transfers are reported and the rest are committed.
+     */
+    public List<BatchTransferResult> transferBatch(List<TransferRequest> transfers, boolean atomic) {
+        if (transfers.size() > maxBatchSize) {
+            throw new RuntimeException("A batch may contain at most " + maxBatchSize + " transfers");
+        }
+        Set<String> accountNumbers = new LinkedHashSet<>();
+        for (TransferRequest request : transfers) {
+            if (request.getFromAccountNumber() != null) {
+                accountNumbers.add(request.getFromAccountNumber());
+            }
+            if (request.getToAccountNumber() != null) {
+                accountNumbers.add(request.getToAccountNumber());
+            }
+        }
+        try {
+            return inLockedTransaction(new ArrayList<>(accountNumbers),
+                    () -> doTransferBatch(transfers, accountService.lockAccounts(accountNumbers), atomic));
+        } catch (BatchRejectedException e) {
+            return e.results;
+        }
+    }
+
+    private List<BatchTransferResult> doTransferBatch(List<TransferRequest> transfers,
+                                                      Map<String, Account> accounts, boolean atomic) {
+        List<BatchTransferResult> results = new ArrayList<>(transfers.size());
+        List<Transaction> completed = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequest request = transfers.get(i);
+            Account fromAccount = accounts.get(request.getFromAccountNumber());
+            Account toAccount = accounts.get(request.getToAccountNumber());
+            String error = validateBatchTransfer(request, fromAccount, toAccount);
+            if (error != null) {
+                if (atomic) {
+                    throw new BatchRejectedException(transfers.size(), i, error);
+                }
+                results.add(new BatchTransferResult(i, BatchTransferResult.Status.FAILED, null, null, error));
+                continue;
+            }
+
+            fromAccount.setBalance(fromAccount.getBalance().subtract(request.getAmount()));
+            toAccount.setBalance(toAccount.getBalance().add(request.getAmount()));
+
+            Transaction transaction = new Transaction();
+            transaction.setFromAccount(fromAccount);
+            transaction.setToAccount(toAccount);
+            transaction.setAmount(request.getAmount());
+            transaction.setTransactionType(Transaction.TransactionType.TRANSFER);
+            transaction.setDescription(request.getDescription() != null ? request.getDescription() : "Fund transfer");
+            transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+            transaction.setTransactionDate(now);
+            completed.add(transaction);
+            results.add(new BatchTransferResult(i, BatchTransferResult.Status.COMPLETED, null, null, null));
+        }
+
+        List<Transaction> saved = transactionRepository.saveAll(completed);
+        int next = 0;
+        for (BatchTransferResult result : results) {
+            if (result.getStatus() == BatchTransferResult.Status.COMPLETED) {
+                Transaction transaction = saved.get(next++);
+                result.setId(transaction.getId());
+                result.setTransactionId(transaction.getTransactionId());
+            }
+        }
+        ledgerService.recordAll(saved);
+        xmlMirrorService.mirrorAll(saved);
+        outboxService.addAll(saved);
+        System.out.println("[TRANSFER] Batch applied " + saved.size() + " of " + transfers.size() + " transfers");
+        return results;
+    }
+
+    private String validateBatchTransfer(TransferRequest request, Account fromAccount, Account toAccount) {
+        if (request.getIfscCode() != null && !request.getIfscCode().trim().isEmpty()) {
+            return "External transfers are not supported in a batch";
+        }
+        if (request.getAmount() == null || request.getAmount().signum() <= 0) {
+            return "Amount must be greater than 0";
+        }
+        if (fromAccount == null || toAccount == null) {
+            return "Account not found";
+        }
+        if (fromAccount.getId().equals(toAccount.getId())) {
+            return "Cannot transfer to the same account";
+        }
+        if (!accountService.hasSufficientBalance(fromAccount, request.getAmount())) {
+            return "Insufficient balance";
+        }
+        return null;
+    }
+
+    /**
+     * Debits the account and leaves the transfer {@code PENDING} for the next clearing
+     * cycle; {@link ClearingService} completes or returns it once the clearing house
+     * has answered. The XML store only receives it then, with its final status.
+     */
     public Transaction transferToExternalAccount(String fromAccountNumber, String externalAccountNumber,
                                                  String ifscCode, BigDecimal amount, String description) {
-        Account fromAccount = accountService.getAccountByNumber(fromAccountNumber);
+        String ifsc = ifscCode != null ? ifscCode.trim().toUpperCase() : null;
+        if (ifsc == null || !IFSC_PATTERN.matcher(ifsc).matches()) {
+            throw new RuntimeException("Invalid IFSC code");
+        }
+        String beneficiaryAccount = externalAccountNumber != null ? externalAccountNumber.trim() : null;
+        if (beneficiaryAccount == null || !BENEFICIARY_ACCOUNT_PATTERN.matcher(beneficiaryAccount).matches()) {
+            throw new RuntimeException("Invalid beneficiary account number");
+        }
+        return inLockedTransaction(List.of(fromAccountNumber), () -> doTransferToExternalAccount(
+                accountService.lockExistingAccounts(List.of(fromAccountNumber)).get(fromAccountNumber),
+                beneficiaryAccount, ifsc, amount, description));
+    }
 
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
+    /**
+     * Credits a pending external transfer the clearing house has returned back to the
+     * account it was debited from. Does nothing if the transfer is no longer pending.
+     */
+    public void returnExternalTransfer(Transaction transfer, String reason) {
+        String accountNumber = transfer.getFromAccount().getAccountNumber();
+        List<String> locked = accountService.accountsToLock(List.of(), List.of(accountNumber));
+        inLockedTransaction(locked, () -> {
+            Transaction transaction = transactionRepository.findById(transfer.getId())
+                    .orElseThrow(() -> new RuntimeException("Transaction not found"));
+            if (transaction.getStatus() != Transaction.TransactionStatus.PENDING) {
+                return null;
+            }
+            Account account = accountService.lockForBalanceChange(locked, List.of(accountNumber)).get(accountNumber);
+            accountService.updateBalance(account, transaction.getAmount());
+            transaction.setStatus(Transaction.TransactionStatus.FAILED);
+            transaction.setRemarks("Returned: " + reason);
+            transactionRepository.save(transaction);
+            ledgerService.recordReturned(transaction);
+            xmlMirrorService.mirror(transaction);
+            outboxService.add(transaction);
+            return null;
+        });
+    }
+
+    private Transaction doTransferToExternalAccount(Account fromAccount, String externalAccountNumber,
+                                                    String ifscCode, BigDecimal amount, String description) {
+
+        if (!accountService.hasSufficientBalance(fromAccount, amount)) {
             throw new RuntimeException("Insufficient balance");
         }
 
@@ -99,14 +302,16 @@ public class TransactionService {
         transaction.setDescription(description != null ? description : "External transfer");
         transaction.setStatus(Transaction.TransactionStatus.PENDING);
         transaction.setTransactionDate(LocalDateTime.now());
+        transaction.setBeneficiaryIfsc(ifscCode);
         transaction.setRemarks("IFSC: " + ifscCode);
 
         try {
             accountService.updateBalance(fromAccount, amount.negate());
-            transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
             transaction = transactionRepository.save(transaction);
+            ledgerService.record(transaction);
 
-            xmlTransactionService.saveTransactionToXml(transaction);
+            // mirrored to XML once clearing settles or returns it
+            outboxService.add(transaction);
             return transaction;
         } catch (Exception e) {
             transaction.setStatus(Transaction.TransactionStatus.FAILED);
@@ -116,9 +321,14 @@ public class TransactionService {
         }
     }
 
-    @Transactional
     public Transaction deposit(String accountNumber, BigDecimal amount, String description) {
-        Account account = accountService.getAccountByNumber(accountNumber);
+        List<String> locked = accountService.accountsToLock(List.of(), List.of(accountNumber));
+        return inLockedTransaction(locked, () -> doDeposit(
+                accountService.lockForBalanceChange(locked, List.of(accountNumber)).get(accountNumber),
+                amount, description));
+    }
+
+    private Transaction doDeposit(Account account, BigDecimal amount, String description) {
 
         Transaction transaction = new Transaction();
         transaction.setToAccount(account);
@@ -130,16 +340,21 @@ public class TransactionService {
 
         accountService.updateBalance(account, amount);
         transaction = transactionRepository.save(transaction);
-        xmlTransactionService.saveTransactionToXml(transaction);
+        ledgerService.record(transaction);
+        xmlMirrorService.mirror(transaction);
+        outboxService.add(transaction);
 
         return transaction;
     }
 
-    @Transactional
     public Transaction withdraw(String accountNumber, BigDecimal amount, String description) {
-        Account account = accountService.getAccountByNumber(accountNumber);
+        return inLockedTransaction(List.of(accountNumber), () -> doWithdraw(
+                accountService.lockExistingAccounts(List.of(accountNumber)).get(accountNumber), amount, description));
+    }
+
+    private Transaction doWithdraw(Account account, BigDecimal amount, String description) {
 
-        if (account.getBalance().compareTo(amount) < 0) {
+        if (!accountService.hasSufficientBalance(account, amount)) {
             throw new RuntimeException("Insufficient balance");
         }
 
@@ -155,7 +370,9 @@ public class TransactionService {
             accountService.updateBalance(account, amount.negate());
             transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
             transaction = transactionRepository.save(transaction);
-            xmlTransactionService.saveTransactionToXml(transaction);
+            ledgerService.record(transaction);
+            xmlMirrorService.mirror(transaction);
+            outboxService.add(transaction);
             return transaction;
         } catch (Exception e) {
             transaction.setStatus(Transaction.TransactionStatus.FAILED);
@@ -165,21 +382,146 @@ public class TransactionService {
         }
     }
 
-    public List<Transaction> getAccountTransactions(String accountNumber) {
+    public List<TransactionView> getAccountTransactions(String accountNumber) {
         Account account = accountService.getAccountByNumber(accountNumber);
-        return transactionRepository.findByAccountOrderByDateDesc(account);
+        return transactionRepository.findByAccountOrderByDateDesc(account.getId());
     }
 
-    public List<Transaction> getAccountTransactionsByDateRange(String accountNumber,
-                                                               LocalDateTime startDate,
-                                                               LocalDateTime endDate) {
+    public List<TransactionView> getAccountTransactionsByDateRange(String accountNumber,
+                                                                   LocalDateTime startDate,
+                                                                   LocalDateTime endDate) {
         Account account = accountService.getAccountByNumber(accountNumber);
-        return transactionRepository.findByAccountAndDateRange(account, startDate, endDate);
+        return transactionRepository.findByAccountAndDateRange(account.getId(), startDate, endDate);
+    }
+
+    /**
+     * One page of the account's history, newest first, optionally limited to a date
+     * range. {@code cursor} is the {@code nextCursor} of the previous page, or null
+     * for the first page.
+     */
+    public TransactionPage getAccountTransactionsPage(String accountNumber, LocalDateTime startDate,
+                                                      LocalDateTime endDate, String cursor, int limit) {
+        Account account = accountService.getAccountByNumber(accountNumber);
+        LocalDateTime from = startDate != null ? startDate : EARLIEST_DATE;
+        LocalDateTime beforeDate = endDate != null ? endDate : LATEST_DATE;
+        long beforeId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] position = decodeCursor(cursor);
+            beforeDate = LocalDateTime.parse(position[0]);
+            beforeId = Long.parseLong(position[1]);
+        }
+
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<TransactionView> debits = transactionRepository.findPageFromAccount(account, from, beforeDate, beforeId, page);
+        List<TransactionView> credits = transactionRepository.findPageToAccount(account, from, beforeDate, beforeId, page);
+
+        // merge the two newest-first lists; a transfer between the account and itself
+        // appears in both
+        List<TransactionView> items = new ArrayList<>(limit + 1);
+        int d = 0;
+        int c = 0;
+        while (items.size() <= limit && (d < debits.size() || c < credits.size())) {
+            TransactionView next;
+            if (c >= credits.size() || (d < debits.size() && isNewer(debits.get(d), credits.get(c)))) {
+                next = debits.get(d++);
+            } else {
+                next = credits.get(c++);
+            }
+            if (items.isEmpty() || !items.get(items.size() - 1).getId().equals(next.getId())) {
+                items.add(next);
+            }
+        }
+
+        String nextCursor = null;
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            TransactionView last = items.get(limit - 1);
+            nextCursor = encodeCursor(last.getTransactionDate(), last.getId());
+        }
+        return new TransactionPage(new ArrayList<>(items), nextCursor);
+    }
+
+    private static boolean isNewer(TransactionView a, TransactionView b) {
+        int byDate = a.getTransactionDate().compareTo(b.getTransactionDate());
+        return byDate != 0 ? byDate > 0 : a.getId() > b.getId();
+    }
+
+    private static String encodeCursor(LocalDateTime transactionDate, Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((transactionDate + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (position.length != 2) {
+                throw new IllegalArgumentException();
+            }
+            LocalDateTime.parse(position[0]);
+            Long.parseLong(position[1]);
+            return position;
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
     }
 
     public Transaction getTransactionById(Long transactionId) {
         return transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new RuntimeException("Transaction not found"));
     }
+
+    // Rolls back an all-or-nothing batch, carrying the per-transfer results out
+    private static class BatchRejectedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        // only read in this JVM, right after the rollback
+        private final transient List<BatchTransferResult> results = new ArrayList<>();
+
+        BatchRejectedException(int size, int failedIndex, String error) {
+            super(error);
+            for (int i = 0; i < size; i++) {
+                results.add(i == failedIndex
+                        ? new BatchTransferResult(i, BatchTransferResult.Status.FAILED, null, null, error)
+                        : new BatchTransferResult(i, BatchTransferResult.Status.NOT_APPLIED, null, null,
+                                "Batch rolled back: transfer " + failedIndex + " failed"));
+            }
+        }
+    }
+
+    /**
+     * Runs a balance-changing operation in its own database transaction while
+     * holding the in-process locks of the accounts it touches. The locks are taken
+     * before the transaction starts and released after it commits, so no other
+     * transfer can read a balance this one is about to change. Lock timeouts and
+     * database lock conflicts are retried with jittered exponential backoff.
+     */
+    private <T> T inLockedTransaction(List<String> accountNumbers, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                AccountLockManager.Locked locked = accountLockManager.tryLock(accountNumbers);
+                if (locked != null) {
+                    try (locked) {
+                        return transactionTemplate.execute(status -> work.get());
+                    }
+                }
+                if (attempt >= maxAttempts) {
+                    throw new RuntimeException("Account is busy, please try again");
+                }
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw new RuntimeException("Transaction failed: " + e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Transaction interrupted");
+            }
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(Math.max(1, retryBackoffMs << (attempt - 1))) + 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Transaction interrupted");
+            }
+        }
+    }
 }
 
@@ -0,0 +1,45 @@
+package com.banking.service;
+
+/**
+ * Thrown when a transfer was applied, or may have been, but has not settled by the
+ * time its caller is answered. Unlike other transfer failures it must not be
+ * retried: running the transfer again could move the money twice.
+ */
+public class TransferNotSettledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Outcome {
+        // the source was debited; the destination is credited later, at the latest on the next startup
+        CREDIT_PENDING,
+        // the transfer may or may not have been applied
+        UNKNOWN
+    }
+
+    private final Outcome outcome;
+    private final Long transactionId;
+
+    TransferNotSettledException(Outcome outcome, Long transactionId, String message) {
+        super(message);
+        this.outcome = outcome;
+        this.transactionId = transactionId;
+    }
+
+    static TransferNotSettledException creditPending(Long transactionId) {
+        return new TransferNotSettledException(Outcome.CREDIT_PENDING, transactionId,
+                "Transfer accepted but the credit is still pending");
+    }
+
+    static TransferNotSettledException unknown() {
+        return new TransferNotSettledException(Outcome.UNKNOWN, null,
+                "Transfer is still being processed; check the account before retrying");
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+}
@@ -0,0 +1,186 @@
+package com.banking.service;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sidecar index mapping account numbers to the byte ranges of journal records that
+ * touch them. Entries are appended next to the journal ({@code <journal>.idx}) and
+ * kept in memory; a missing, corrupt or lagging index is rebuilt or caught up from
+ * the journal on open.
+ */
+class XmlAccountIndex implements AutoCloseable {
+
+    private static final int MAGIC = 0x54584931; // "TXI1"
+
+    private final XmlTransactionJournal journal;
+    private final Path path;
+    private final Map<String, Entries> entries = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    private long coveredUpTo;
+
+    XmlAccountIndex(XmlTransactionJournal journal) {
+        this.journal = journal;
+        this.path = journal.getPath().resolveSibling(journal.getPath().getFileName() + ".idx");
+    }
+
+    synchronized void open() throws IOException {
+        boolean loaded;
+        try {
+            loaded = Files.exists(path) && load();
+        } catch (IOException e) {
+            loaded = false;
+        }
+        if (!loaded || coveredUpTo > journal.getDataEnd()) {
+            if (Files.exists(path)) {
+                System.err.println("[XML-INDEX] " + path + " is stale, rebuilding from journal");
+            }
+            close();
+            entries.clear();
+            coveredUpTo = 0;
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            channel.write(ByteBuffer.allocate(4).putInt(0, MAGIC));
+        }
+
+        if (coveredUpTo < journal.getDataEnd()) {
+            long start = coveredUpTo;
+            journal.scanRecords(start, (offset, record) -> add(parseAccounts(record), offset, record.length));
+            if (coveredUpTo > start) {
+                System.out.println("[XML-INDEX] Indexed journal from offset " + start + " to " + coveredUpTo);
+            }
+        }
+    }
+
+    /**
+     * Records that the record at {@code offset} touches the given accounts. Callers
+     * must add records in journal order.
+     */
+    synchronized void add(String[] accountNumbers, long offset, int length) throws IOException {
+        for (int i = 0; i < accountNumbers.length; i++) {
+            String accountNumber = accountNumbers[i];
+            if (accountNumber == null || (i > 0 && accountNumber.equals(accountNumbers[0]))) {
+                continue;
+            }
+            byte[] key = accountNumber.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer entry = ByteBuffer.allocate(1 + key.length + 8 + 4);
+            entry.put((byte) key.length).put(key).putLong(offset).putInt(length).flip();
+            while (entry.hasRemaining()) {
+                channel.write(entry);
+            }
+            entries.computeIfAbsent(accountNumber, k -> new Entries()).add(offset, length);
+        }
+        coveredUpTo = Math.max(coveredUpTo, offset + length);
+    }
+
+    /**
+     * Returns {@code [offset, length]} pairs for the account, in journal order.
+     */
+    long[][] lookup(String accountNumber) {
+        Entries accountEntries = entries.get(accountNumber);
+        return accountEntries != null ? accountEntries.snapshot() : new long[0][];
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    static String[] parseAccounts(byte[] record) throws IOException {
+        try {
+            XMLStreamReader reader = XmlTransactionReader.createStreamReader(new ByteArrayInputStream(record));
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT
+                            && "transaction".equals(reader.getLocalName())) {
+                        XmlTransactionService.TransactionXml tx = XmlTransactionReader.readRecord(reader);
+                        return new String[] {tx.getFromAccountNumber(), tx.getToAccountNumber()};
+                    }
+                }
+                return new String[0];
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Unreadable journal record: " + e.getMessage(), e);
+        }
+    }
+
+    private boolean load() throws IOException {
+        long validLength = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            DataInputStream data = new DataInputStream(in);
+            if (data.readInt() != MAGIC) {
+                return false;
+            }
+            validLength = 4;
+            while (true) {
+                int keyLength = data.read();
+                if (keyLength < 0) {
+                    break;
+                }
+                byte[] key = new byte[keyLength];
+                data.readFully(key);
+                long offset = data.readLong();
+                int length = data.readInt();
+                entries.computeIfAbsent(new String(key, StandardCharsets.UTF_8), k -> new Entries())
+                        .add(offset, length);
+                coveredUpTo = Math.max(coveredUpTo, offset + length);
+                validLength += 1 + keyLength + 8 + 4;
+            }
+        } catch (EOFException e) {
+            if (validLength == 0) {
+                return false;
+            }
+            // torn trailing entry, dropped below
+        }
+        channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        channel.truncate(validLength);
+        channel.position(validLength);
+        return true;
+    }
+
+    // Growable parallel arrays of record offsets and lengths for one account
+    private static class Entries {
+        private long[] offsets = new long[4];
+        private int[] lengths = new int[4];
+        private int size;
+
+        synchronized void add(long offset, int length) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            offsets[size] = offset;
+            lengths[size] = length;
+            size++;
+        }
+
+        synchronized long[][] snapshot() {
+            long[][] result = new long[size][];
+            for (int i = 0; i < size; i++) {
+                result[i] = new long[] {offsets[i], lengths[i]};
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.banking.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * One journal file of the XML store together with its account index, covering the
+ * transaction dates in {@code [start, end)}. The journal and index are opened on
+ * first use so that old segments cost nothing until a query reaches them.
+ *
+ * <p>An archived segment ({@code .xml.gz}) is a gzip-compressed, read-only copy of
+ * the complete journal document. It has no index; queries decompress it on the fly.
+ */
+class XmlJournalSegment implements AutoCloseable {
+
+    private final String name;
+    private final Path path;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final boolean fsync;
+    private XmlTransactionJournal journal;
+    private XmlAccountIndex accountIndex;
+
+    XmlJournalSegment(String name, Path path, LocalDateTime start, LocalDateTime end, boolean fsync) {
+        this.name = name;
+        this.path = path;
+        this.start = start;
+        this.end = end;
+        this.fsync = fsync;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    LocalDateTime getStart() {
+        return start;
+    }
+
+    LocalDateTime getEnd() {
+        return end;
+    }
+
+    boolean isCompressed() {
+        return name.endsWith(".gz");
+    }
+
+    boolean covers(LocalDateTime date) {
+        return !date.isBefore(start) && date.isBefore(end);
+    }
+
+    /**
+     * True if any date in {@code [from, to]} falls inside this segment; null bounds
+     * are open-ended.
+     */
+    boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        return (to == null || !to.isBefore(start)) && (from == null || from.isBefore(end));
+    }
+
+    synchronized XmlTransactionJournal journal() throws IOException {
+        if (isCompressed()) {
+            throw new IOException("Segment " + name + " is archived and read-only");
+        }
+        if (journal == null) {
+            XmlTransactionJournal opened = new XmlTransactionJournal(path, fsync);
+            opened.open();
+            accountIndex = new XmlAccountIndex(opened);
+            accountIndex.open();
+            journal = opened;
+        }
+        return journal;
+    }
+
+    synchronized void appendBatch(List<XmlTransactionService.TransactionXml> transactions,
+                                  List<byte[]> records) throws IOException {
+        XmlTransactionJournal segmentJournal = journal();
+        long previousEnd = segmentJournal.getDataEnd();
+        long[] offsets = segmentJournal.appendBatch(records);
+        try {
+            for (int i = 0; i < offsets.length; i++) {
+                XmlTransactionService.TransactionXml transactionXml = transactions.get(i);
+                accountIndex.add(new String[] {transactionXml.getFromAccountNumber(),
+                        transactionXml.getToAccountNumber()}, offsets[i], records.get(i).length);
+            }
+        } catch (IOException | RuntimeException e) {
+            // the caller sees a failure and may write the records again, so take them
+            // back out; the index now points past the journal end and is rebuilt when
+            // the segment is next opened
+            try {
+                segmentJournal.truncate(previousEnd);
+            } catch (IOException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            } finally {
+                close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Streams matching records in journal order. With an account number only the
+     * indexed records of that account are read; archived segments are decompressed
+     * and filtered instead. The stream must be closed.
+     */
+    Stream<XmlTransactionService.TransactionXml> stream(String accountNumber,
+                                                        Predicate<XmlTransactionService.TransactionXml> filter) {
+        try {
+            if (isCompressed()) {
+                return streamReader(new XmlTransactionReader(
+                        new GZIPInputStream(Files.newInputStream(path), 64 * 1024), filter));
+            }
+            XmlTransactionJournal segmentJournal = journal();
+            if (accountNumber != null) {
+                return Arrays.stream(accountIndex.lookup(accountNumber))
+                        .map(entry -> readIndexedRecord(segmentJournal, entry[0], (int) entry[1]))
+                        .filter(filter);
+            }
+            return streamReader(new XmlTransactionReader(segmentJournal.openSnapshot(), filter));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load transactions from XML: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Opens the records stored from byte {@code offset} of the journal onwards as a
+     * standalone document. An archive holds the journal's exact bytes compressed, so
+     * an offset taken before archiving still applies; its end is reported as
+     * {@link Long#MAX_VALUE} since nothing can be appended to it.
+     */
+    Tail openTail(long offset) throws IOException {
+        InputStream records;
+        long tailEnd;
+        if (isCompressed()) {
+            records = new GZIPInputStream(Files.newInputStream(path), 64 * 1024);
+            records.skipNBytes(offset);
+            tailEnd = Long.MAX_VALUE;
+        } else {
+            XmlTransactionJournal segmentJournal = journal();
+            tailEnd = segmentJournal.getDataEnd();
+            records = segmentJournal.openSnapshot(offset, tailEnd);
+        }
+        if (offset > 0) {
+            records = new SequenceInputStream(new ByteArrayInputStream(XmlTransactionJournal.HEADER), records);
+        }
+        return new Tail(records, tailEnd);
+    }
+
+    /**
+     * Removes the segment's files. Only called once the segment has been replaced.
+     */
+    void deleteFiles() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(path.resolveSibling(path.getFileName() + ".idx"));
+    }
+
+    private static Stream<XmlTransactionService.TransactionXml> streamReader(XmlTransactionReader reader) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(reader::close);
+    }
+
+    record Tail(InputStream records, long end) {
+    }
+
+    private static XmlTransactionService.TransactionXml readIndexedRecord(XmlTransactionJournal journal,
+                                                                         long offset, int length) {
+        try (XmlTransactionReader reader = new XmlTransactionReader(
+                new ByteArrayInputStream(journal.readRecord(offset, length)), t -> true)) {
+            return reader.next();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load transactions from XML: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (accountIndex != null) {
+            accountIndex.close();
+            accountIndex = null;
+        }
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+}
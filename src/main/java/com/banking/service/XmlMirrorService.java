@@ -0,0 +1,414 @@
+package com.banking.service;
+
+import com.banking.model.Transaction;
+import com.banking.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind mirroring of committed transactions into the XML store. Records are
+ * queued once the database transaction commits and written in batches by a single
+ * background thread, so XML I/O never holds database locks or fails a transfer.
+ *
+ * <p>A watermark of the highest database id below which everything has been
+ * mirrored is kept next to the XML store; on startup anything above it that is not
+ * already in the journal is replayed from the database. Ids are handed out in blocks,
+ * so a row below the watermark can still commit after it has moved; rows dated
+ * shortly before the watermark last moved are therefore checked again as well.
+ * Records that find the queue full or whose batch keeps failing are set aside and
+ * re-queued periodically, so they do not pin the watermark until the next restart.
+ */
+@Service
+public class XmlMirrorService {
+
+    private static final int REPLAY_PAGE_SIZE = 500;
+    private static final int WRITE_ATTEMPTS = 3;
+
+    private final XmlTransactionService xmlTransactionService;
+    private final TransactionRepository transactionRepository;
+
+    @Value("${banking.transactions.xml.write-behind.enabled:true}")
+    private boolean enabled;
+
+    @Value("${banking.transactions.xml.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${banking.transactions.xml.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${banking.transactions.xml.write-behind.enqueue-timeout-ms:50}")
+    private long enqueueTimeoutMs;
+
+    @Value("${banking.transactions.xml.path}")
+    private String xmlFilePath;
+
+    @Value("${banking.transactions.xml.reconcile.late-commit-window-seconds:300}")
+    private long lateCommitWindowSeconds;
+
+    private BlockingQueue<PendingRecord> queue;
+    private final ConcurrentSkipListSet<Long> unmirrored = new ConcurrentSkipListSet<>();
+    // not queued or not written; still in unmirrored, re-queued by retryDeferred
+    private final Queue<PendingRecord> deferred = new ConcurrentLinkedQueue<>();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private volatile long watermark;
+    private volatile LocalDateTime watermarkMovedAt;
+    private volatile long lastBatchMillis;
+    private volatile boolean running;
+    private Thread writer;
+
+    public XmlMirrorService(XmlTransactionService xmlTransactionService,
+                            TransactionRepository transactionRepository) {
+        this.xmlTransactionService = xmlTransactionService;
+        this.transactionRepository = transactionRepository;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        watermark = loadWatermark();
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::drainLoop, "xml-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Mirrors a saved transaction. Inside a database transaction the record is
+     * queued only after commit; with write-behind disabled it is written inline.
+     */
+    public void mirror(Transaction transaction) {
+        mirrorAll(List.of(transaction));
+    }
+
+    /**
+     * Mirrors several transactions saved in the same database transaction, queued
+     * together after it commits.
+     */
+    public void mirrorAll(List<Transaction> transactions) {
+        if (!enabled) {
+            xmlTransactionService.saveTransactionsToXml(transactions.stream()
+                    .map(xmlTransactionService::convertToXml)
+                    .collect(Collectors.toList()));
+            return;
+        }
+        List<PendingRecord> records = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            PendingRecord record = new PendingRecord(transaction.getId(), xmlTransactionService.convertToXml(transaction));
+            unmirrored.add(record.id());
+            records.add(record);
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            records.forEach(this::enqueue);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    records.forEach(XmlMirrorService.this::enqueue);
+                } else {
+                    records.forEach(record -> unmirrored.remove(record.id()));
+                }
+            }
+        });
+    }
+
+    /**
+     * Blocks until everything queued so far has been written (or the timeout passes).
+     */
+    public boolean flush(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (queue != null && !queue.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return queue == null || queue.isEmpty();
+    }
+
+    /**
+     * True while the transaction is committed or committing but not yet written.
+     */
+    public boolean isPending(Long transactionId) {
+        return unmirrored.contains(transactionId);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("queueDepth", queue != null ? queue.size() : 0);
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("enqueued", enqueued.get());
+        metrics.put("written", written.get());
+        metrics.put("batches", batches.get());
+        metrics.put("dropped", dropped.get());
+        metrics.put("failed", failed.get());
+        metrics.put("replayed", replayed.get());
+        metrics.put("unmirrored", unmirrored.size());
+        metrics.put("deferred", deferred.size());
+        metrics.put("watermark", watermark);
+        metrics.put("lastBatchMillis", lastBatchMillis);
+        return metrics;
+    }
+
+    /**
+     * Re-queues committed transactions that never reached the journal, e.g. because
+     * the process stopped with records still queued: those above the watermark, and
+     * those below it dated within the late-commit window before it last moved.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void replayUnmirrored() {
+        if (!enabled) {
+            return;
+        }
+        long after = watermark;
+        LocalDateTime windowStart = watermarkMovedAt != null
+                ? watermarkMovedAt.minusSeconds(lateCommitWindowSeconds) : null;
+        List<Transaction> late = after > 0 && windowStart != null
+                ? transactionRepository.findWithAccountsUpToIdSince(after, windowStart) : List.of();
+        LocalDateTime earliest = transactionRepository.findEarliestDateAfterId(after);
+        if (late.isEmpty() && earliest == null) {
+            return;
+        }
+        if (!late.isEmpty() && (earliest == null || windowStart.isBefore(earliest))) {
+            earliest = windowStart;
+        }
+
+        String since = earliest.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        Set<String> alreadyMirrored;
+        try (Stream<XmlTransactionService.TransactionXml> records =
+                     xmlTransactionService.streamTransactions(null, since, null)) {
+            alreadyMirrored = records.map(XmlTransactionService.TransactionXml::getTransactionId)
+                    .collect(Collectors.toCollection(HashSet::new));
+        }
+
+        try {
+            for (Transaction transaction : late) {
+                replay(transaction, alreadyMirrored);
+            }
+            List<Transaction> page;
+            while (!(page = transactionRepository.findWithAccountsAfterId(after, PageRequest.of(0, REPLAY_PAGE_SIZE))).isEmpty()) {
+                for (Transaction transaction : page) {
+                    replay(transaction, alreadyMirrored);
+                    after = transaction.getId();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (replayed.get() > 0) {
+            System.out.println("[XML-MIRROR] Replayed " + replayed.get() + " unmirrored transaction(s)");
+        }
+    }
+
+    private void replay(Transaction transaction, Set<String> alreadyMirrored) throws InterruptedException {
+        // a pending transfer is mirrored once, when it settles or is returned
+        if (transaction.getStatus() == Transaction.TransactionStatus.PENDING
+                || alreadyMirrored.contains(transaction.getTransactionId())) {
+            return;
+        }
+        PendingRecord record = new PendingRecord(transaction.getId(), xmlTransactionService.convertToXml(transaction));
+        unmirrored.add(record.id());
+        queue.put(record);
+        enqueued.incrementAndGet();
+        replayed.incrementAndGet();
+    }
+
+    private void enqueue(PendingRecord record) {
+        boolean accepted;
+        try {
+            accepted = queue.offer(record, enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (accepted) {
+            enqueued.incrementAndGet();
+        } else {
+            // stays in unmirrored, so the watermark holds until it is written
+            dropped.incrementAndGet();
+            deferred.add(record);
+            System.err.println("[XML-MIRROR] Queue full, deferring transaction " + record.xml().getTransactionId());
+        }
+    }
+
+    /**
+     * Puts deferred records back on the queue, as far as it has room.
+     */
+    @Scheduled(fixedDelayString = "${banking.transactions.xml.write-behind.retry-interval-ms:30000}")
+    public void retryDeferred() {
+        if (!running) {
+            return;
+        }
+        int requeued = 0;
+        PendingRecord record;
+        // the only consumer of deferred, so the head cannot change between peek and poll
+        while ((record = deferred.peek()) != null && queue.offer(record)) {
+            deferred.poll();
+            enqueued.incrementAndGet();
+            requeued++;
+        }
+        if (requeued > 0) {
+            System.out.println("[XML-MIRROR] Re-queued " + requeued + " deferred transaction(s)");
+        }
+    }
+
+    private void drainLoop() {
+        List<PendingRecord> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRecord first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingRecord> batch) throws InterruptedException {
+        List<PendingRecord> remaining = batch;
+        for (int attempt = 1; attempt <= WRITE_ATTEMPTS; attempt++) {
+            long start = System.currentTimeMillis();
+            try {
+                xmlTransactionService.saveTransactionsToXml(remaining.stream()
+                        .map(PendingRecord::xml)
+                        .collect(Collectors.toList()));
+                lastBatchMillis = System.currentTimeMillis() - start;
+                batches.incrementAndGet();
+                markWritten(remaining);
+                return;
+            } catch (RuntimeException e) {
+                int attempted = remaining.size();
+                if (e.getCause() instanceof XmlSegmentStore.PartialWriteException partial) {
+                    // the records that reached the store must not be written again
+                    BitSet stored = partial.getWritten();
+                    List<PendingRecord> unwritten = new ArrayList<>();
+                    List<PendingRecord> writtenNow = new ArrayList<>();
+                    for (int i = 0; i < remaining.size(); i++) {
+                        (stored.get(i) ? writtenNow : unwritten).add(remaining.get(i));
+                    }
+                    markWritten(writtenNow);
+                    remaining = unwritten;
+                }
+                System.err.println("[XML-MIRROR] Batch of " + attempted + " failed (attempt " + attempt + "), "
+                        + remaining.size() + " left to write: " + e.getMessage());
+                Thread.sleep(1000L * attempt);
+            }
+        }
+        failed.addAndGet(remaining.size());
+        deferred.addAll(remaining);
+    }
+
+    private void markWritten(List<PendingRecord> records) {
+        written.addAndGet(records.size());
+        long highest = 0;
+        for (PendingRecord record : records) {
+            unmirrored.remove(record.id());
+            highest = Math.max(highest, record.id());
+        }
+        advanceWatermark(highest);
+    }
+
+    private synchronized void advanceWatermark(long highestWritten) {
+        long candidate = unmirrored.isEmpty()
+                ? Math.max(watermark, highestWritten)
+                : Math.max(watermark, unmirrored.first() - 1);
+        if (candidate == watermark) {
+            return;
+        }
+        LocalDateTime movedAt = LocalDateTime.now();
+        watermark = candidate;
+        watermarkMovedAt = movedAt;
+        try {
+            Files.writeString(watermarkPath(), candidate + " " + movedAt);
+        } catch (IOException e) {
+            System.err.println("[XML-MIRROR] Failed to persist watermark: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads {@code <id> <time it moved>}; a file holding only the id is dated by its
+     * modification time.
+     */
+    private long loadWatermark() {
+        Path path = watermarkPath();
+        if (!Files.exists(path)) {
+            return 0L;
+        }
+        try {
+            String[] parts = Files.readString(path).trim().split("\\s+");
+            watermarkMovedAt = parts.length > 1 ? LocalDateTime.parse(parts[1])
+                    : LocalDateTime.ofInstant(Files.getLastModifiedTime(path).toInstant(), ZoneId.systemDefault());
+            return Long.parseLong(parts[0]);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[XML-MIRROR] Unreadable watermark " + path + ", replaying from the start");
+            watermarkMovedAt = null;
+            return 0L;
+        }
+    }
+
+    private Path watermarkPath() {
+        return Paths.get(xmlFilePath + ".mirror");
+    }
+
+    private record PendingRecord(Long id, XmlTransactionService.TransactionXml xml) {
+    }
+}
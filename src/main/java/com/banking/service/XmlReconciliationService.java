@@ -0,0 +1,432 @@
+package com.banking.service;
+
+import com.banking.model.Transaction;
+import com.banking.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Checks that the database and the XML store hold the same transactions. Each run
+ * compares only what was added since the previous one: database rows above the
+ * checkpointed id and journal bytes past each segment's checkpointed offset.
+ *
+ * <p>Records that cannot be paired within a run are carried in the checkpoint: rows
+ * whose XML record has not been written yet ({@code pendingXml}) and XML records
+ * whose row was committed after the database was read ({@code pendingDb}).
+ *
+ * <p>Ids are handed out in blocks per instance, so a row can commit after a run with
+ * an id below the one the run stopped at. Each run therefore also re-reads the rows
+ * dated from shortly before the previous run and picks up those it has not seen
+ * ({@code recent} holds the ones already accounted for).
+ *
+ * <p>Pending transfers are mirrored only once they settle or are returned, usually
+ * long after their row was read. Their rows wait in {@code awaitingFinal} and are
+ * re-read each run; one that has reached its final status without its record being
+ * written or queued is reported missing (and repaired).
+ */
+@Service
+public class XmlReconciliationService {
+
+    private static final int PAGE_SIZE = 500;
+    private static final int SAMPLE_SIZE = 20;
+
+    private final XmlTransactionService xmlTransactionService;
+    private final XmlMirrorService xmlMirrorService;
+    private final TransactionRepository transactionRepository;
+
+    @Value("${banking.transactions.xml.path}")
+    private String xmlFilePath;
+
+    @Value("${banking.transactions.xml.reconcile.on-startup:true}")
+    private boolean reconcileOnStartup;
+
+    @Value("${banking.transactions.xml.reconcile.repair-on-startup:true}")
+    private boolean repairOnStartup;
+
+    @Value("${banking.transactions.xml.reconcile.late-commit-window-seconds:300}")
+    private long lateCommitWindowSeconds;
+
+    @Value("${banking.transactions.xml.reconcile.max-awaiting-xml:10000}")
+    private int maxAwaitingXml;
+
+    private volatile Map<String, Object> lastReport;
+
+    public XmlReconciliationService(XmlTransactionService xmlTransactionService,
+                                    XmlMirrorService xmlMirrorService,
+                                    TransactionRepository transactionRepository) {
+        this.xmlTransactionService = xmlTransactionService;
+        this.xmlMirrorService = xmlMirrorService;
+        this.transactionRepository = transactionRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void reconcileAtStartup() {
+        if (reconcileOnStartup) {
+            Map<String, Object> report = reconcile(repairOnStartup);
+            System.out.println("[XML-RECONCILE] " + report);
+        }
+    }
+
+    public Map<String, Object> getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Compares everything added to either side since the last run and advances the
+     * checkpoint. With {@code repair}, rows missing from the XML store are written to
+     * it; duplicated and mismatched records are only reported, since the journal is
+     * append-only.
+     */
+    public synchronized Map<String, Object> reconcile(boolean repair) {
+        long started = System.currentTimeMillis();
+        LocalDateTime runStarted = LocalDateTime.now();
+        try {
+            xmlMirrorService.flush(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Checkpoint checkpoint = Checkpoint.load(checkpointPath());
+
+        // Database rows added since the last run, bounded so rows committed while
+        // the journal is read are left to the next run
+        Long maxId = transactionRepository.findMaxId();
+        long upTo = maxId != null ? maxId : 0L;
+        Map<String, DbRecord> dbDelta = new LinkedHashMap<>();
+        LocalDateTime nextWindowStart = runStarted.minusSeconds(lateCommitWindowSeconds);
+        Set<String> recent = new HashSet<>();
+
+        // Rows below the old checkpoint that committed after the previous run
+        if (checkpoint.lastRunStarted != null && checkpoint.lastTransactionId > 0) {
+            LocalDateTime since = checkpoint.lastRunStarted.minusSeconds(lateCommitWindowSeconds);
+            for (Transaction transaction : transactionRepository.findWithAccountsUpToIdSince(
+                    Math.min(checkpoint.lastTransactionId, upTo), since)) {
+                if (!checkpoint.recent.contains(transaction.getTransactionId())
+                        && !checkpoint.pendingDb.remove(transaction.getTransactionId())) {
+                    dbDelta.put(transaction.getTransactionId(),
+                            new DbRecord(transaction.getId(), xmlTransactionService.convertToXml(transaction)));
+                }
+                if (!transaction.getTransactionDate().isBefore(nextWindowStart)) {
+                    recent.add(transaction.getTransactionId());
+                }
+            }
+        }
+
+        long after = checkpoint.lastTransactionId;
+        List<Transaction> page;
+        while (after < upTo
+                && !(page = transactionRepository.findWithAccountsAfterId(after, PageRequest.of(0, PAGE_SIZE))).isEmpty()) {
+            for (Transaction transaction : page) {
+                if (transaction.getId() > upTo) {
+                    break;
+                }
+                if (!checkpoint.pendingDb.remove(transaction.getTransactionId())) {
+                    dbDelta.put(transaction.getTransactionId(),
+                            new DbRecord(transaction.getId(), xmlTransactionService.convertToXml(transaction)));
+                }
+                if (!transaction.getTransactionDate().isBefore(nextWindowStart)) {
+                    recent.add(transaction.getTransactionId());
+                }
+            }
+            after = page.get(page.size() - 1).getId();
+        }
+
+        // XML records appended since the last run
+        Report report = new Report();
+        report.databaseRows = dbDelta.size();
+        List<XmlTransactionService.TransactionXml> unpaired = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        Map<String, Long> offsets = new LinkedHashMap<>();
+        for (XmlJournalSegment segment : xmlTransactionService.getSegments()) {
+            long offset = checkpoint.offsetFor(segment.getName());
+            if (offset == Long.MAX_VALUE) {
+                offsets.put(segment.getName(), offset);
+                continue;
+            }
+            try {
+                XmlJournalSegment.Tail tail = segment.openTail(offset);
+                try (XmlTransactionReader reader = new XmlTransactionReader(tail.records(), t -> true)) {
+                    while (reader.hasNext()) {
+                        XmlTransactionService.TransactionXml xml = reader.next();
+                        report.scanned++;
+                        if (!seen.add(xml.getTransactionId())) {
+                            report.duplicated.add(xml.getTransactionId());
+                            continue;
+                        }
+                        DbRecord row = dbDelta.remove(xml.getTransactionId());
+                        if (row != null) {
+                            compare(row.xml(), xml, report);
+                        } else {
+                            unpaired.add(xml);
+                        }
+                    }
+                }
+                offsets.put(segment.getName(), tail.end());
+            } catch (IOException | RuntimeException e) {
+                // keep the old offset so the segment is retried next run
+                offsets.put(segment.getName(), offset);
+                report.errors.add(segment.getName() + ": " + e.getMessage());
+            }
+        }
+
+        // XML records whose row was not in this run's database delta
+        for (int i = 0; i < unpaired.size(); i += PAGE_SIZE) {
+            List<XmlTransactionService.TransactionXml> chunk = unpaired.subList(i, Math.min(i + PAGE_SIZE, unpaired.size()));
+            Map<String, Transaction> rows = new HashMap<>();
+            for (Transaction transaction : transactionRepository.findWithAccountsByTransactionIdIn(
+                    chunk.stream().map(XmlTransactionService.TransactionXml::getTransactionId).toList())) {
+                rows.put(transaction.getTransactionId(), transaction);
+            }
+            for (XmlTransactionService.TransactionXml xml : chunk) {
+                Transaction row = rows.get(xml.getTransactionId());
+                if (row == null) {
+                    report.orphaned.add(xml.getTransactionId());
+                    continue;
+                }
+                if (row.getId() > upTo) {
+                    checkpoint.pendingDb.add(xml.getTransactionId());
+                } else if (!checkpoint.pendingXml.remove(xml.getTransactionId())) {
+                    // the row was paired with an earlier record in a previous run
+                    report.duplicated.add(xml.getTransactionId());
+                    continue;
+                }
+                checkpoint.awaitingFinal.remove(xml.getTransactionId());
+                compare(xmlTransactionService.convertToXml(row), xml, report);
+            }
+        }
+
+        // Pending transfers carried from earlier runs that have since settled or been
+        // returned; their record is written by the settling transaction
+        List<XmlTransactionService.TransactionXml> missing = new ArrayList<>();
+        List<String> awaitingFinal = new ArrayList<>(checkpoint.awaitingFinal);
+        for (int i = 0; i < awaitingFinal.size(); i += PAGE_SIZE) {
+            List<String> chunk = awaitingFinal.subList(i, Math.min(i + PAGE_SIZE, awaitingFinal.size()));
+            Set<String> found = new HashSet<>();
+            for (Transaction transaction : transactionRepository.findWithAccountsByTransactionIdIn(chunk)) {
+                found.add(transaction.getTransactionId());
+                if (transaction.getStatus() == Transaction.TransactionStatus.PENDING) {
+                    continue;
+                }
+                if (xmlMirrorService.isPending(transaction.getId())) {
+                    report.inFlight++;
+                    continue;
+                }
+                checkpoint.awaitingFinal.remove(transaction.getTransactionId());
+                report.missing.add(transaction.getTransactionId());
+                missing.add(xmlTransactionService.convertToXml(transaction));
+            }
+            chunk.stream().filter(transactionId -> !found.contains(transactionId))
+                    .forEach(checkpoint.awaitingFinal::remove);
+        }
+
+        // Rows with no XML record yet
+        for (DbRecord row : dbDelta.values()) {
+            String transactionId = row.xml().getTransactionId();
+            checkpoint.pendingXml.add(transactionId);
+            if (Transaction.TransactionStatus.PENDING.name().equals(row.xml().getStatus())) {
+                checkpoint.awaitingFinal.add(transactionId);
+            } else if (xmlMirrorService.isPending(row.id())) {
+                report.inFlight++;
+            } else {
+                report.missing.add(transactionId);
+                missing.add(row.xml());
+            }
+        }
+        if (repair && !missing.isEmpty()) {
+            try {
+                xmlTransactionService.saveTransactionsToXml(missing);
+                report.repaired = missing.size();
+            } catch (RuntimeException e) {
+                report.errors.add("repair: " + e.getMessage());
+            }
+        }
+
+        // without repair, rows that never get an XML record would pile up here
+        Iterator<String> oldest = checkpoint.pendingXml.iterator();
+        while (checkpoint.pendingXml.size() > maxAwaitingXml && oldest.hasNext()) {
+            oldest.next();
+            oldest.remove();
+            report.dropped++;
+        }
+        checkpoint.awaitingFinal.retainAll(checkpoint.pendingXml);
+
+        checkpoint.lastTransactionId = Math.max(checkpoint.lastTransactionId, upTo);
+        checkpoint.lastRunStarted = runStarted;
+        checkpoint.recent.clear();
+        checkpoint.recent.addAll(recent);
+        checkpoint.offsets = offsets;
+        try {
+            checkpoint.save(checkpointPath());
+        } catch (IOException e) {
+            report.errors.add("checkpoint: " + e.getMessage());
+        }
+
+        Map<String, Object> result = report.toMap(checkpoint, System.currentTimeMillis() - started);
+        lastReport = result;
+        return result;
+    }
+
+    private static void compare(XmlTransactionService.TransactionXml expected,
+                                XmlTransactionService.TransactionXml actual, Report report) {
+        boolean sameAmount = expected.getAmount() != null && actual.getAmount() != null
+                ? new BigDecimal(expected.getAmount()).compareTo(new BigDecimal(actual.getAmount())) == 0
+                : Objects.equals(expected.getAmount(), actual.getAmount());
+        if (sameAmount
+                && Objects.equals(expected.getTransactionType(), actual.getTransactionType())
+                && Objects.equals(expected.getStatus(), actual.getStatus())
+                && Objects.equals(expected.getFromAccountNumber(), actual.getFromAccountNumber())
+                && Objects.equals(expected.getToAccountNumber(), actual.getToAccountNumber())) {
+            report.matched++;
+        } else {
+            report.mismatched.add(actual.getTransactionId());
+        }
+    }
+
+    private Path checkpointPath() {
+        return Paths.get(xmlFilePath + ".reconcile");
+    }
+
+    private record DbRecord(Long id, XmlTransactionService.TransactionXml xml) {
+    }
+
+    private static class Report {
+        long databaseRows;
+        long scanned;
+        long matched;
+        long inFlight;
+        long dropped;
+        int repaired;
+        final List<String> missing = new ArrayList<>();
+        final List<String> duplicated = new ArrayList<>();
+        final List<String> mismatched = new ArrayList<>();
+        final List<String> orphaned = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+
+        Map<String, Object> toMap(Checkpoint checkpoint, long durationMillis) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("databaseRows", databaseRows);
+            map.put("xmlRecords", scanned);
+            map.put("matched", matched);
+            map.put("missing", missing.size());
+            map.put("repaired", repaired);
+            map.put("duplicated", duplicated.size());
+            map.put("mismatched", mismatched.size());
+            map.put("orphaned", orphaned.size());
+            map.put("inFlight", inFlight);
+            map.put("missingSample", sample(missing));
+            map.put("duplicatedSample", sample(duplicated));
+            map.put("mismatchedSample", sample(mismatched));
+            map.put("orphanedSample", sample(orphaned));
+            map.put("errors", errors);
+            map.put("lastTransactionId", checkpoint.lastTransactionId);
+            map.put("awaitingXml", checkpoint.pendingXml.size());
+            map.put("awaitingXmlDropped", dropped);
+            map.put("awaitingDatabase", checkpoint.pendingDb.size());
+            map.put("awaitingFinalStatus", checkpoint.awaitingFinal.size());
+            map.put("durationMillis", durationMillis);
+            return map;
+        }
+
+        private static List<String> sample(List<String> ids) {
+            return ids.subList(0, Math.min(SAMPLE_SIZE, ids.size()));
+        }
+    }
+
+    // Progress of the last run, kept as a properties file next to the XML store
+    private static class Checkpoint {
+        long lastTransactionId;
+        LocalDateTime lastRunStarted;
+        Map<String, Long> offsets = new LinkedHashMap<>();
+        final Set<String> pendingXml = new LinkedHashSet<>();
+        final Set<String> pendingDb = new LinkedHashSet<>();
+        // pending transfers in pendingXml, mirrored once they settle or are returned
+        final Set<String> awaitingFinal = new LinkedHashSet<>();
+        final Set<String> recent = new HashSet<>();
+
+        long offsetFor(String segmentName) {
+            Long offset = offsets.get(segmentName);
+            if (offset == null && segmentName.endsWith(".gz")) {
+                // archived since the last run; the compressed bytes are the same journal
+                offset = offsets.get(segmentName.substring(0, segmentName.length() - 3));
+            }
+            return offset != null ? offset : 0L;
+        }
+
+        static Checkpoint load(Path path) {
+            Checkpoint checkpoint = new Checkpoint();
+            if (!Files.exists(path)) {
+                return checkpoint;
+            }
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(path)) {
+                properties.load(in);
+                checkpoint.lastTransactionId = Long.parseLong(properties.getProperty("lastTransactionId", "0"));
+                String lastRunStarted = properties.getProperty("lastRunStarted");
+                checkpoint.lastRunStarted = lastRunStarted != null ? LocalDateTime.parse(lastRunStarted) : null;
+                for (String key : properties.stringPropertyNames()) {
+                    if (key.startsWith("segment.")) {
+                        checkpoint.offsets.put(key.substring("segment.".length()),
+                                Long.parseLong(properties.getProperty(key)));
+                    }
+                }
+                checkpoint.pendingXml.addAll(split(properties.getProperty("pendingXml")));
+                checkpoint.pendingDb.addAll(split(properties.getProperty("pendingDb")));
+                checkpoint.awaitingFinal.addAll(split(properties.getProperty("awaitingFinal")));
+                checkpoint.recent.addAll(split(properties.getProperty("recent")));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("[XML-RECONCILE] Unreadable checkpoint " + path + ", starting over");
+                return new Checkpoint();
+            }
+            return checkpoint;
+        }
+
+        void save(Path path) throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty("lastTransactionId", Long.toString(lastTransactionId));
+            if (lastRunStarted != null) {
+                properties.setProperty("lastRunStarted", lastRunStarted.toString());
+            }
+            offsets.forEach((name, offset) -> properties.setProperty("segment." + name, Long.toString(offset)));
+            properties.setProperty("pendingXml", String.join(",", pendingXml));
+            properties.setProperty("pendingDb", String.join(",", pendingDb));
+            properties.setProperty("awaitingFinal", String.join(",", awaitingFinal));
+            properties.setProperty("recent", String.join(",", recent));
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                properties.store(out, "XML reconciliation checkpoint");
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private static List<String> split(String value) {
+            return value == null || value.isEmpty() ? List.of() : Arrays.asList(value.split(","));
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.banking.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The XML transaction store as a list of time-partitioned journal segments. With
+ * period {@code NONE} it is the single journal at the configured path; otherwise
+ * records go to one file per day or month under a directory next to that path,
+ * listed in a small manifest so date-range queries only open overlapping segments.
+ * Closed segments can be archived to gzip; a record arriving late for an archived
+ * period opens a fresh overflow segment for that period.
+ */
+class XmlSegmentStore implements AutoCloseable {
+
+    enum SegmentPeriod { NONE, DAILY, MONTHLY }
+
+    private static final String MANIFEST = "manifest.txt";
+    private static final LocalDateTime OPEN_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime OPEN_END = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    private final Path basePath;
+    private final Path segmentDir;
+    private final String baseName;
+    private final SegmentPeriod period;
+    private final boolean fsync;
+    private final List<XmlJournalSegment> segments = new CopyOnWriteArrayList<>();
+    // replaced by an archive but possibly still being read; deleted on the next pass
+    private final List<XmlJournalSegment> retired = new ArrayList<>();
+
+    XmlSegmentStore(Path basePath, SegmentPeriod period, boolean fsync) {
+        this.basePath = basePath;
+        String fileName = basePath.getFileName().toString();
+        this.baseName = fileName.endsWith(".xml") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        this.segmentDir = basePath.resolveSibling(baseName);
+        this.period = period;
+        this.fsync = fsync;
+    }
+
+    synchronized void open() throws IOException {
+        if (period == SegmentPeriod.NONE) {
+            XmlJournalSegment single = newSegment(basePath.getFileName().toString(),
+                    basePath, OPEN_START, OPEN_END);
+            single.journal();
+            segments.add(single);
+            return;
+        }
+
+        Files.createDirectories(segmentDir);
+        Path manifest = segmentDir.resolve(MANIFEST);
+        if (Files.exists(manifest)) {
+            for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\|");
+                segments.add(newSegment(parts[0], segmentDir.resolve(parts[0]),
+                        LocalDateTime.parse(parts[1]), LocalDateTime.parse(parts[2])));
+            }
+        }
+        if (Files.exists(basePath)) {
+            adoptLegacyJournal();
+        }
+        System.out.println("[XML-STORE] " + segments.size() + " " + period + " segment(s) in " + segmentDir);
+    }
+
+    /**
+     * Appends records to the segments covering their transaction dates, creating a
+     * segment when a new period starts. Records bound for the same segment are
+     * written together, one segment after another.
+     *
+     * @throws PartialWriteException if a segment failed after earlier ones were
+     *         written; any other exception means no record was written
+     */
+    synchronized void appendBatch(List<XmlTransactionService.TransactionXml> transactions, List<byte[]> records) throws IOException {
+        Map<XmlJournalSegment, List<Integer>> bySegment = new LinkedHashMap<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            LocalDateTime date = LocalDateTime.parse(transactions.get(i).getTransactionDate());
+            bySegment.computeIfAbsent(segmentFor(date), segment -> new ArrayList<>()).add(i);
+        }
+        BitSet written = new BitSet(records.size());
+        for (Map.Entry<XmlJournalSegment, List<Integer>> entry : bySegment.entrySet()) {
+            List<XmlTransactionService.TransactionXml> segmentTransactions = new ArrayList<>();
+            List<byte[]> segmentRecords = new ArrayList<>();
+            for (int i : entry.getValue()) {
+                segmentTransactions.add(transactions.get(i));
+                segmentRecords.add(records.get(i));
+            }
+            try {
+                entry.getKey().appendBatch(segmentTransactions, segmentRecords);
+            } catch (IOException | RuntimeException e) {
+                if (written.isEmpty()) {
+                    throw e;
+                }
+                throw new PartialWriteException(e, written);
+            }
+            entry.getValue().forEach(written::set);
+        }
+    }
+
+    /**
+     * Streams matching records from every segment that overlaps the date range, in
+     * segment order. Segments outside the range are never opened. The stream must
+     * be closed.
+     */
+    Stream<XmlTransactionService.TransactionXml> stream(String accountNumber, String startDate, String endDate,
+                                                        Predicate<XmlTransactionService.TransactionXml> filter) {
+        LocalDateTime from = parseBound(startDate);
+        LocalDateTime to = parseBound(endDate);
+        List<XmlJournalSegment> selected = segments.stream()
+                .filter(segment -> segment.overlaps(from, to))
+                .sorted(Comparator.comparing(XmlJournalSegment::getStart))
+                .toList();
+        return selected.stream().flatMap(segment -> segment.stream(accountNumber, filter));
+    }
+
+    List<XmlJournalSegment> getSegments() {
+        return new ArrayList<>(segments);
+    }
+
+    /**
+     * Compresses every uncompressed segment whose period ended before the cutoff.
+     * Compression runs outside the store lock; a segment that received a record in
+     * the meantime is left alone until the next pass.
+     *
+     * @return the number of segments archived
+     */
+    int archiveClosedSegments(LocalDateTime cutoff) throws IOException {
+        deleteRetired();
+        int archived = 0;
+        for (XmlJournalSegment segment : getSegments()) {
+            if (!segment.isCompressed() && !segment.getEnd().isAfter(cutoff) && archive(segment)) {
+                archived++;
+            }
+        }
+        return archived;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (XmlJournalSegment segment : segments) {
+            segment.close();
+        }
+        deleteRetired();
+    }
+
+    private boolean archive(XmlJournalSegment segment) throws IOException {
+        XmlTransactionJournal journal = segment.journal();
+        long dataEnd = journal.getDataEnd();
+        String name = segment.getName() + ".gz";
+        if (Files.exists(segmentDir.resolve(name))) {
+            name = segment.getName().replace(".xml", "-" + System.currentTimeMillis() + ".xml") + ".gz";
+        }
+        Path target = segmentDir.resolve(name);
+        Path tmp = segmentDir.resolve(name + ".tmp");
+        try (InputStream in = journal.openSnapshot();
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+            in.transferTo(out);
+        }
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+
+        synchronized (this) {
+            if (journal.getDataEnd() != dataEnd) {
+                Files.delete(tmp);
+                return false;
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            segments.set(segments.indexOf(segment), newSegment(name, target,
+                    segment.getStart(), segment.getEnd()));
+            writeManifest();
+            retired.add(segment);
+        }
+        System.out.println("[XML-STORE] Archived " + segment.getName() + " (" + dataEnd + " bytes) to " + name
+                + " (" + Files.size(target) + " bytes)");
+        return true;
+    }
+
+    private synchronized void deleteRetired() throws IOException {
+        for (XmlJournalSegment segment : retired) {
+            segment.deleteFiles();
+        }
+        retired.clear();
+    }
+
+    private XmlJournalSegment segmentFor(LocalDateTime date) throws IOException {
+        for (XmlJournalSegment segment : segments) {
+            if (segment.covers(date) && isWritable(segment)) {
+                return segment;
+            }
+        }
+        synchronized (this) {
+            for (XmlJournalSegment segment : segments) {
+                if (segment.covers(date) && isWritable(segment)) {
+                    return segment;
+                }
+            }
+            LocalDateTime start;
+            LocalDateTime end;
+            String suffix;
+            if (period == SegmentPeriod.DAILY) {
+                LocalDate day = date.toLocalDate();
+                start = day.atStartOfDay();
+                end = day.plusDays(1).atStartOfDay();
+                suffix = day.toString();
+            } else {
+                YearMonth month = YearMonth.from(date);
+                start = month.atDay(1).atStartOfDay();
+                end = month.plusMonths(1).atDay(1).atStartOfDay();
+                suffix = month.toString();
+            }
+            String name = baseName + "-" + suffix + ".xml";
+            if (Files.exists(segmentDir.resolve(name)) || Files.exists(segmentDir.resolve(name + ".gz"))) {
+                // the period was archived; segment names are never reused
+                name = baseName + "-" + suffix + "-" + System.currentTimeMillis() + ".xml";
+            }
+            XmlJournalSegment segment = newSegment(name, segmentDir.resolve(name), start, end);
+            segment.journal();
+            segments.add(segment);
+            writeManifest();
+            System.out.println("[XML-STORE] Rolled to new segment " + name);
+            return segment;
+        }
+    }
+
+    XmlJournalSegment newSegment(String name, Path path, LocalDateTime start, LocalDateTime end) {
+        return new XmlJournalSegment(name, path, start, end, fsync);
+    }
+
+    private boolean isWritable(XmlJournalSegment segment) {
+        return !segment.isCompressed() && !segment.getName().startsWith(baseName + "-legacy");
+    }
+
+    /**
+     * Moves a pre-segmentation journal into the segment directory as a read-only
+     * segment bounded by the dates it actually contains.
+     */
+    private void adoptLegacyJournal() throws IOException {
+        XmlJournalSegment probe = new XmlJournalSegment(basePath.getFileName().toString(),
+                basePath, OPEN_START, OPEN_END, fsync);
+        LocalDateTime min = null;
+        LocalDateTime max = null;
+        try (Stream<XmlTransactionService.TransactionXml> records = probe.stream(null, t -> true)) {
+            for (XmlTransactionService.TransactionXml record : (Iterable<XmlTransactionService.TransactionXml>) records::iterator) {
+                LocalDateTime date = LocalDateTime.parse(record.getTransactionDate());
+                min = min == null || date.isBefore(min) ? date : min;
+                max = max == null || date.isAfter(max) ? date : max;
+            }
+        } finally {
+            probe.close();
+        }
+
+        Path legacyIndex = basePath.resolveSibling(basePath.getFileName() + ".idx");
+        if (min == null) {
+            Files.delete(basePath);
+            Files.deleteIfExists(legacyIndex);
+            return;
+        }
+
+        String name = baseName + "-legacy-" + System.currentTimeMillis() + ".xml";
+        Path target = segmentDir.resolve(name);
+        Files.move(basePath, target, StandardCopyOption.ATOMIC_MOVE);
+        if (Files.exists(legacyIndex)) {
+            Files.move(legacyIndex, target.resolveSibling(name + ".idx"), StandardCopyOption.ATOMIC_MOVE);
+        }
+        segments.add(newSegment(name, target, min, max.plusNanos(1)));
+        writeManifest();
+        System.out.println("[XML-STORE] Moved " + basePath + " into segment " + name + " (" + min + " to " + max + ")");
+    }
+
+    private void writeManifest() throws IOException {
+        StringBuilder manifest = new StringBuilder("# segment|start (inclusive)|end (exclusive)\n");
+        segments.stream()
+                .sorted(Comparator.comparing(XmlJournalSegment::getStart))
+                .forEach(segment -> manifest.append(segment.getName()).append('|')
+                        .append(segment.getStart().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append('|')
+                        .append(segment.getEnd().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append('\n'));
+        Path tmp = segmentDir.resolve(MANIFEST + ".tmp");
+        Files.writeString(tmp, manifest, StandardCharsets.UTF_8);
+        Files.move(tmp, segmentDir.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static LocalDateTime parseBound(String date) {
+        if (date == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(date);
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDate.parse(date).atTime(LocalTime.MIDNIGHT);
+            } catch (DateTimeParseException ignored) {
+                // unparseable bound: do not prune, the record filter still applies
+                return null;
+            }
+        }
+    }
+
+    /**
+     * An append that failed after some of its records were durably written. Those
+     * records must not be appended again.
+     */
+    static class PartialWriteException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final BitSet written;
+
+        PartialWriteException(Throwable cause, BitSet written) {
+            super(written.cardinality() + " record(s) written before the failure: " + cause.getMessage(), cause);
+            this.written = (BitSet) written.clone();
+        }
+
+        /**
+         * Indexes, in the records passed to the failed append, of those that were written.
+         */
+        BitSet getWritten() {
+            return (BitSet) written.clone();
+        }
+    }
+}
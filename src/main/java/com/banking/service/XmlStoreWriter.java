@@ -0,0 +1,166 @@
+package com.banking.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The only thread that appends to the XML store. Callers hand over records and wait
+ * on a future; whatever has queued up while the previous write was in flight goes
+ * out as one batch, so concurrent callers share a single write and fsync per
+ * segment. Readers never wait on it: they read journal snapshots.
+ */
+class XmlStoreWriter implements AutoCloseable {
+
+    private static final int MAX_COALESCED_REQUESTS = 1000;
+
+    private final XmlSegmentStore store;
+    private final BlockingQueue<WriteRequest> requests = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    XmlStoreWriter(XmlSegmentStore store) {
+        this.store = store;
+        this.thread = new Thread(this::writeLoop, "xml-store-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues the records and blocks until they are on disk.
+     *
+     * @throws XmlSegmentStore.PartialWriteException if only some of the records were
+     *         written; they must not be written again
+     * @throws IOException if the write they were part of failed and none were written
+     */
+    void write(List<XmlTransactionService.TransactionXml> transactions, List<byte[]> records) throws IOException {
+        WriteRequest request = new WriteRequest(transactions, records, new CompletableFuture<>());
+        synchronized (this) {
+            if (!running) {
+                throw new IOException("XML store writer is closed");
+            }
+            requests.add(request);
+        }
+        try {
+            request.done().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops accepting records, writes what is already queued and stops the thread.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            running = false;
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<WriteRequest> batch = new ArrayList<>();
+        while (running || !requests.isEmpty()) {
+            try {
+                WriteRequest first = requests.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                requests.drainTo(batch, MAX_COALESCED_REQUESTS - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failPending(new IOException("XML store writer interrupted"));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<WriteRequest> batch) {
+        List<XmlTransactionService.TransactionXml> transactions = new ArrayList<>();
+        List<byte[]> records = new ArrayList<>();
+        for (WriteRequest request : batch) {
+            transactions.addAll(request.transactions());
+            records.addAll(request.records());
+        }
+        BitSet written;
+        try {
+            store.appendBatch(transactions, records);
+            batch.forEach(request -> request.done().complete(null));
+            return;
+        } catch (XmlSegmentStore.PartialWriteException e) {
+            written = e.getWritten();
+        } catch (IOException | RuntimeException e) {
+            written = new BitSet();
+            if (batch.size() == 1) {
+                batch.get(0).done().completeExceptionally(e);
+                return;
+            }
+        }
+        // one bad record must not fail everyone it was coalesced with: retry each
+        // caller on its own. Segments are written one after another, so records that
+        // reached an earlier segment are already stored and are left out of the retry.
+        int first = 0;
+        for (WriteRequest request : batch) {
+            int size = request.records().size();
+            retry(request, written.get(first, first + size));
+            first += size;
+        }
+    }
+
+    private void retry(WriteRequest request, BitSet written) {
+        List<Integer> remaining = new ArrayList<>();
+        List<XmlTransactionService.TransactionXml> transactions = new ArrayList<>();
+        List<byte[]> records = new ArrayList<>();
+        for (int i = written.nextClearBit(0); i < request.records().size(); i = written.nextClearBit(i + 1)) {
+            remaining.add(i);
+            transactions.add(request.transactions().get(i));
+            records.add(request.records().get(i));
+        }
+        if (remaining.isEmpty()) {
+            request.done().complete(null);
+            return;
+        }
+        try {
+            store.appendBatch(transactions, records);
+            request.done().complete(null);
+        } catch (XmlSegmentStore.PartialWriteException e) {
+            BitSet retried = e.getWritten();
+            for (int i = retried.nextSetBit(0); i >= 0; i = retried.nextSetBit(i + 1)) {
+                written.set(remaining.get(i));
+            }
+            request.done().completeExceptionally(new XmlSegmentStore.PartialWriteException(e.getCause(), written));
+        } catch (IOException | RuntimeException e) {
+            request.done().completeExceptionally(written.isEmpty()
+                    ? e : new XmlSegmentStore.PartialWriteException(e, written));
+        }
+    }
+
+    private void failPending(IOException cause) {
+        WriteRequest request;
+        while ((request = requests.poll()) != null) {
+            request.done().completeExceptionally(cause);
+        }
+    }
+
+    private record WriteRequest(List<XmlTransactionService.TransactionXml> transactions, List<byte[]> records,
+                                CompletableFuture<Void> done) {
+    }
+}
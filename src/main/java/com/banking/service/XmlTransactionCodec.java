@@ -0,0 +1,56 @@
+package com.banking.service;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Shared JAXB plumbing for the XML transaction store. The context is built once;
+ * marshallers are not thread-safe, so each thread keeps its own. Reading goes
+ * through {@link XmlTransactionReader} instead.
+ */
+@Component
+public class XmlTransactionCodec {
+
+    private final JAXBContext jaxbContext;
+    private final boolean formattedOutput;
+    private final ThreadLocal<Marshaller> recordMarshaller;
+
+    public XmlTransactionCodec(@Value("${banking.transactions.xml.formatted-output:false}") boolean formattedOutput) {
+        try {
+            this.jaxbContext = JAXBContext.newInstance(
+                    XmlTransactionService.TransactionsWrapper.class,
+                    XmlTransactionService.TransactionXml.class);
+        } catch (JAXBException e) {
+            throw new RuntimeException("Failed to initialize JAXB context: " + e.getMessage(), e);
+        }
+        this.formattedOutput = formattedOutput;
+        this.recordMarshaller = ThreadLocal.withInitial(this::newRecordMarshaller);
+    }
+
+    /**
+     * Serializes a single {@code <transaction>} element, without an XML declaration,
+     * terminated by a line break.
+     */
+    public byte[] marshalRecord(XmlTransactionService.TransactionXml transactionXml) throws JAXBException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(formattedOutput ? 512 : 384);
+        recordMarshaller.get().marshal(transactionXml, out);
+        out.write('\n');
+        return out.toByteArray();
+    }
+
+    private Marshaller newRecordMarshaller() {
+        try {
+            Marshaller marshaller = jaxbContext.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formattedOutput);
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+            return marshaller;
+        } catch (JAXBException e) {
+            throw new RuntimeException("Failed to create JAXB marshaller: " + e.getMessage(), e);
+        }
+    }
+}
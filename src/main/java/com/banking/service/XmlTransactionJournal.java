@@ -0,0 +1,357 @@
+package com.banking.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only XML journal. The file is always a well-formed {@code <transactions>}
+ * document: each record is written at the end of the data region followed by the
+ * closing footer, so appends never rewrite earlier records.
+ */
+class XmlTransactionJournal implements AutoCloseable {
+
+    static final byte[] HEADER = ("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<transactions>\n").getBytes(StandardCharsets.UTF_8);
+    static final byte[] FOOTER = "</transactions>\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] ROOT_OPEN = "<transactions>".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RECORD_OPEN = "<transaction>".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RECORD_CLOSE = "</transaction>".getBytes(StandardCharsets.UTF_8);
+    private static final int SCAN_CHUNK = 64 * 1024;
+
+    private final Path path;
+    private final boolean fsync;
+    private FileChannel channel;
+    private volatile long dataEnd;
+
+    XmlTransactionJournal(Path path, boolean fsync) {
+        this.path = path;
+        this.fsync = fsync;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Opens the journal, creating it if needed. A torn trailing record left by a crash
+     * is truncated and the footer is rewritten.
+     */
+    synchronized void open() throws IOException {
+        Path parentDir = path.toAbsolutePath().getParent();
+        if (parentDir != null && !Files.exists(parentDir)) {
+            Files.createDirectories(parentDir);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long size = channel.size();
+        long recovered = size == 0 ? -1 : findDataEnd(size);
+        if (recovered < 0) {
+            if (size > 0) {
+                System.err.println("[XML-JOURNAL] " + path + " has no readable <transactions> root, reinitializing");
+            }
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(HEADER), 0);
+            recovered = HEADER.length;
+        }
+
+        long expectedSize = recovered + FOOTER.length;
+        if (size != expectedSize || !endsWithFooter(size)) {
+            if (size > expectedSize) {
+                System.err.println("[XML-JOURNAL] Truncating " + (size - recovered)
+                        + " trailing bytes from " + path);
+            }
+            channel.truncate(recovered);
+            channel.write(ByteBuffer.wrap(FOOTER), recovered);
+            channel.force(true);
+        }
+        dataEnd = recovered;
+    }
+
+    /**
+     * Appends one serialized {@code <transaction>} record and returns the byte offset it
+     * was written at.
+     */
+    long append(byte[] record) throws IOException {
+        return appendBatch(List.of(record))[0];
+    }
+
+    /**
+     * Appends several records with a single write and a single fsync, returning the
+     * byte offset of each.
+     */
+    synchronized long[] appendBatch(List<byte[]> records) throws IOException {
+        long start = dataEnd;
+        int total = 0;
+        for (byte[] record : records) {
+            total += record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total + FOOTER.length);
+        long[] offsets = new long[records.size()];
+        long position = start;
+        for (int i = 0; i < records.size(); i++) {
+            offsets[i] = position;
+            buffer.put(records.get(i));
+            position += records.get(i).length;
+        }
+        buffer.put(FOOTER).flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, start + buffer.position());
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            // a partly written batch must not be recovered as records on the next open
+            try {
+                truncate(start);
+            } catch (IOException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+            throw e;
+        }
+        dataEnd = position;
+        return offsets;
+    }
+
+    /**
+     * Drops everything after {@code end}, which must be the end of an earlier append,
+     * and rewrites the footer there. Undoes an append that could not be completed.
+     */
+    synchronized void truncate(long end) throws IOException {
+        channel.truncate(end);
+        channel.write(ByteBuffer.wrap(FOOTER), end);
+        channel.force(true);
+        dataEnd = end;
+    }
+
+    long getDataEnd() {
+        return dataEnd;
+    }
+
+    /**
+     * Opens a stream over the journal as it was at the time of the call. Records
+     * appended afterwards are not visible, and the footer is supplied from memory so
+     * a concurrent append never exposes a half-written tail.
+     */
+    InputStream openSnapshot() throws IOException {
+        return openSnapshot(0, dataEnd);
+    }
+
+    /**
+     * Opens the journal bytes in {@code [from, limit)} followed by the footer.
+     */
+    InputStream openSnapshot(long from, long limit) throws IOException {
+        FileChannel reader = FileChannel.open(path, StandardOpenOption.READ);
+        return new SequenceInputStream(new RangeInputStream(reader, from, limit),
+                new ByteArrayInputStream(FOOTER));
+    }
+
+    /**
+     * Reads the raw bytes of one record previously returned by {@link #append} or
+     * {@link #scanRecords}.
+     */
+    byte[] readRecord(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        // positional reads on the shared channel are safe alongside appends
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of journal at offset " + offset);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Visits every complete record that starts at or after {@code from}, in file order,
+     * up to the current end of data.
+     */
+    void scanRecords(long from, RecordVisitor visitor) throws IOException {
+        long limit = dataEnd;
+        try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+            byte[] pending = new byte[0];
+            long pendingStart = from;
+            long position = from;
+            while (position < limit) {
+                int length = (int) Math.min(SCAN_CHUNK, limit - position);
+                ByteBuffer chunk = ByteBuffer.allocate(length);
+                while (chunk.hasRemaining()) {
+                    if (reader.read(chunk, position + chunk.position()) < 0) {
+                        throw new IOException("Unexpected end of journal at offset " + position);
+                    }
+                }
+                position += length;
+
+                byte[] buffer = new byte[pending.length + length];
+                System.arraycopy(pending, 0, buffer, 0, pending.length);
+                System.arraycopy(chunk.array(), 0, buffer, pending.length, length);
+
+                int cursor = 0;
+                while (true) {
+                    int open = indexOf(buffer, cursor, buffer.length, RECORD_OPEN);
+                    if (open < 0) {
+                        // keep a tail in case an opening tag straddles the chunk boundary
+                        cursor = Math.max(cursor, buffer.length - RECORD_OPEN.length + 1);
+                        break;
+                    }
+                    int close = indexOf(buffer, open, buffer.length, RECORD_CLOSE);
+                    if (close < 0) {
+                        cursor = open;
+                        break;
+                    }
+                    int end = close + RECORD_CLOSE.length;
+                    if (end < buffer.length && buffer[end] == '\n') {
+                        end++;
+                    }
+                    byte[] record = Arrays.copyOfRange(buffer, open, end);
+                    visitor.visit(pendingStart + open, record);
+                    cursor = end;
+                }
+                pending = Arrays.copyOfRange(buffer, cursor, buffer.length);
+                pendingStart += cursor;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        void visit(long offset, byte[] record) throws IOException;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private boolean endsWithFooter(long size) throws IOException {
+        if (size < FOOTER.length) {
+            return false;
+        }
+        ByteBuffer tail = ByteBuffer.allocate(FOOTER.length);
+        channel.read(tail, size - FOOTER.length);
+        return Arrays.equals(tail.array(), FOOTER);
+    }
+
+    /**
+     * Returns the offset just past the last complete record, or past the root element
+     * when there are no records, or -1 when the file has no usable root element.
+     */
+    private long findDataEnd(long size) throws IOException {
+        long lastClose = lastIndexOf(RECORD_CLOSE, size);
+        if (lastClose >= 0) {
+            return skipLineBreak(lastClose + RECORD_CLOSE.length, size);
+        }
+        int headLength = (int) Math.min(size, SCAN_CHUNK);
+        ByteBuffer head = ByteBuffer.allocate(headLength);
+        channel.read(head, 0);
+        int rootOpen = indexOf(head.array(), 0, headLength, ROOT_OPEN);
+        if (rootOpen < 0) {
+            return -1;
+        }
+        return skipLineBreak(rootOpen + ROOT_OPEN.length, size);
+    }
+
+    private long skipLineBreak(long position, long size) throws IOException {
+        if (position < size) {
+            ByteBuffer next = ByteBuffer.allocate(1);
+            channel.read(next, position);
+            if (next.get(0) == '\n') {
+                return position + 1;
+            }
+        }
+        return position;
+    }
+
+    private long lastIndexOf(byte[] pattern, long size) throws IOException {
+        long end = size;
+        while (end > 0) {
+            long start = Math.max(0, end - SCAN_CHUNK);
+            int length = (int) (end - start);
+            ByteBuffer chunk = ByteBuffer.allocate(length);
+            channel.read(chunk, start);
+            byte[] bytes = chunk.array();
+            for (int i = length - pattern.length; i >= 0; i--) {
+                if (matchesAt(bytes, i, pattern)) {
+                    return start + i;
+                }
+            }
+            if (start == 0) {
+                break;
+            }
+            // overlap so a match straddling two chunks is not missed
+            end = start + pattern.length - 1;
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int length, byte[] pattern) {
+        for (int i = Math.max(from, 0); i <= length - pattern.length; i++) {
+            if (matchesAt(bytes, i, pattern)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matchesAt(byte[] bytes, int offset, byte[] pattern) {
+        for (int j = 0; j < pattern.length; j++) {
+            if (bytes[offset + j] != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Reads a fixed byte range of a file without touching any shared channel position
+    static class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long limit;
+        private long position;
+
+        RangeInputStream(FileChannel channel, long start, long limit) {
+            this.channel = channel;
+            this.position = start;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= limit) {
+                return -1;
+            }
+            int toRead = (int) Math.min(len, limit - position);
+            int n = channel.read(ByteBuffer.wrap(b, off, toRead), position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.banking.service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Pull-parses {@code <transaction>} records one at a time so callers never hold more
+ * than the current record in memory. The filter is applied as each record is read;
+ * records that do not match are dropped immediately.
+ */
+class XmlTransactionReader implements Iterator<XmlTransactionService.TransactionXml>, AutoCloseable {
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private final InputStream in;
+    private final XMLStreamReader reader;
+    private final Predicate<XmlTransactionService.TransactionXml> filter;
+    private XmlTransactionService.TransactionXml next;
+    private boolean finished;
+
+    XmlTransactionReader(InputStream in, Predicate<XmlTransactionService.TransactionXml> filter) {
+        this.in = in;
+        this.filter = filter;
+        try {
+            this.reader = createStreamReader(in);
+        } catch (XMLStreamException e) {
+            closeQuietly(in);
+            throw new RuntimeException("Failed to read transactions from XML: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        try {
+            next = readNextMatching();
+        } catch (XMLStreamException e) {
+            close();
+            throw new RuntimeException("Failed to read transactions from XML: " + e.getMessage(), e);
+        }
+        if (next == null) {
+            close();
+        }
+        return next != null;
+    }
+
+    @Override
+    public XmlTransactionService.TransactionXml next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        XmlTransactionService.TransactionXml current = next;
+        next = null;
+        return current;
+    }
+
+    @Override
+    public void close() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            // the underlying stream is closed below either way
+        }
+        closeQuietly(in);
+    }
+
+    private XmlTransactionService.TransactionXml readNextMatching() throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT && "transaction".equals(reader.getLocalName())) {
+                XmlTransactionService.TransactionXml record = readRecord(reader);
+                if (filter.test(record)) {
+                    return record;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the children of the {@code <transaction>} element the reader is positioned
+     * on and leaves the reader on its end tag.
+     */
+    static XmlTransactionService.TransactionXml readRecord(XMLStreamReader reader) throws XMLStreamException {
+        XmlTransactionService.TransactionXml record = new XmlTransactionService.TransactionXml();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+                String text = reader.getElementText();
+                switch (name) {
+                    case "transactionId" -> record.setTransactionId(text);
+                    case "fromAccountNumber" -> record.setFromAccountNumber(text);
+                    case "toAccountNumber" -> record.setToAccountNumber(text);
+                    case "amount" -> record.setAmount(text);
+                    case "transactionType" -> record.setTransactionType(text);
+                    case "status" -> record.setStatus(text);
+                    case "description" -> record.setDescription(text);
+                    case "transactionDate" -> record.setTransactionDate(text);
+                    case "referenceNumber" -> record.setReferenceNumber(text);
+                    default -> {
+                        // unknown element from a newer writer, ignore
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && "transaction".equals(reader.getLocalName())) {
+                return record;
+            }
+        }
+        throw new XMLStreamException("Unexpected end of document inside <transaction>");
+    }
+
+    static XMLStreamReader createStreamReader(InputStream in) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLStreamReader(in, "UTF-8");
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // nothing useful to do on a read-only stream
+        }
+    }
+}
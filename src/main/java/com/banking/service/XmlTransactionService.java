@@ -1,22 +1,25 @@
 package com.banking.service;
 
 import com.banking.model.Transaction;
-import jakarta.xml.bind.JAXBContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.Unmarshaller;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class XmlTransactionService {
@@ -24,84 +27,164 @@ public class XmlTransactionService {
     @Value("${banking.transactions.xml.path}")
     private String xmlFilePath;
 
-    public void saveTransactionToXml(Transaction transaction) {
-        try {
-            Path path = Paths.get(xmlFilePath);
-            Path parentDir = path.getParent();
-            if (parentDir != null && !Files.exists(parentDir)) {
-                Files.createDirectories(parentDir);
-            }
+    @Value("${banking.transactions.xml.fsync:true}")
+    private boolean fsync;
 
-            File xmlFile = new File(xmlFilePath);
-            TransactionsWrapper wrapper;
+    @Value("${banking.transactions.xml.segment-period:NONE}")
+    private XmlSegmentStore.SegmentPeriod segmentPeriod;
 
-            if (xmlFile.exists() && xmlFile.length() > 0) {
-                wrapper = loadTransactionsWrapperFromXml();
-            } else {
-                wrapper = new TransactionsWrapper();
-                wrapper.setTransactions(new ArrayList<>());
-            }
+    @Value("${banking.transactions.xml.archive.enabled:false}")
+    private boolean archiveEnabled;
 
-            TransactionXml transactionXml = convertToXml(transaction);
-            wrapper.getTransactions().add(transactionXml);
+    @Value("${banking.transactions.xml.archive.after-days:1}")
+    private int archiveAfterDays;
 
-            JAXBContext jaxbContext = JAXBContext.newInstance(TransactionsWrapper.class);
-            Marshaller marshaller = jaxbContext.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            marshaller.marshal(wrapper, xmlFile);
+    private final XmlTransactionCodec codec;
+    private XmlSegmentStore store;
+    private XmlStoreWriter writer;
 
-        } catch (JAXBException | IOException e) {
-            throw new RuntimeException("Failed to save transaction to XML: " + e.getMessage(), e);
+    public XmlTransactionService(XmlTransactionCodec codec) {
+        this.codec = codec;
+    }
+
+    @PostConstruct
+    public void openJournal() {
+        try {
+            store = new XmlSegmentStore(Paths.get(xmlFilePath), segmentPeriod, fsync);
+            store.open();
+            writer = new XmlStoreWriter(store);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open XML transaction journal: " + e.getMessage(), e);
         }
     }
 
-    private TransactionsWrapper loadTransactionsWrapperFromXml() {
+    @PreDestroy
+    public void closeJournal() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    /**
+     * Gzips segments whose period ended more than {@code archive.after-days} ago.
+     * Queries keep reading them through a streaming decompressor.
+     */
+    @Scheduled(fixedDelayString = "${banking.transactions.xml.archive.interval-ms:3600000}",
+            initialDelayString = "${banking.transactions.xml.archive.initial-delay-ms:60000}")
+    public void archiveClosedSegments() {
+        if (!archiveEnabled) {
+            return;
+        }
         try {
-            File xmlFile = new File(xmlFilePath);
-            if (!xmlFile.exists() || xmlFile.length() == 0) {
-                TransactionsWrapper wrapper = new TransactionsWrapper();
-                wrapper.setTransactions(new ArrayList<>());
-                return wrapper;
+            store.archiveClosedSegments(LocalDateTime.now().minusDays(archiveAfterDays));
+        } catch (IOException e) {
+            System.err.println("[XML-STORE] Archiving failed: " + e.getMessage());
+        }
+    }
+
+    List<XmlJournalSegment> getSegments() {
+        return store.getSegments();
+    }
+
+    public List<Map<String, Object>> getSegmentInfo() {
+        List<Map<String, Object>> info = new ArrayList<>();
+        for (XmlJournalSegment segment : store.getSegments()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", segment.getName());
+            entry.put("start", segment.getStart().toString());
+            entry.put("end", segment.getEnd().toString());
+            entry.put("compressed", segment.isCompressed());
+            try {
+                entry.put("sizeBytes", Files.size(segment.getPath()));
+            } catch (IOException e) {
+                entry.put("sizeBytes", null);
             }
+            info.add(entry);
+        }
+        return info;
+    }
 
-            JAXBContext jaxbContext = JAXBContext.newInstance(TransactionsWrapper.class);
-            Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-            TransactionsWrapper wrapper = (TransactionsWrapper) unmarshaller.unmarshal(xmlFile);
+    public void saveTransactionToXml(Transaction transaction) {
+        saveTransactionsToXml(List.of(convertToXml(transaction)));
+    }
 
-            if (wrapper.getTransactions() == null) {
-                wrapper.setTransactions(new ArrayList<>());
+    /**
+     * Writes already converted records through the store's single writer, which
+     * coalesces concurrent callers into one write and fsync per segment touched.
+     * Returns once the records are durable.
+     */
+    public void saveTransactionsToXml(List<TransactionXml> transactions) {
+        try {
+            List<byte[]> records = new ArrayList<>(transactions.size());
+            for (TransactionXml transactionXml : transactions) {
+                records.add(codec.marshalRecord(transactionXml));
             }
-            return wrapper;
-        } catch (JAXBException e) {
-            throw new RuntimeException("Failed to load transactions from XML: " + e.getMessage(), e);
+            writer.write(transactions, records);
+        } catch (JAXBException | IOException e) {
+            throw new RuntimeException("Failed to save transaction to XML: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Streams journal records matching the filter without loading the whole history.
+     * The returned stream holds open files and must be closed by the caller.
+     */
+    public Stream<TransactionXml> streamTransactions(Predicate<TransactionXml> filter) {
+        return store.stream(null, null, null, filter);
+    }
+
+    /**
+     * Streams records touching the account (if given) and dated within the range (if
+     * given), opening only the segments that overlap the range. Must be closed.
+     */
+    public Stream<TransactionXml> streamTransactions(String accountNumber, String startDate, String endDate) {
+        return store.stream(accountNumber, startDate, endDate, matching(accountNumber, startDate, endDate));
+    }
+
+    /**
+     * Returns at most {@code limit} records touching the account (if given) and dated
+     * within the range (if given). Only segments overlapping the range are opened,
+     * account lookups go through each segment's index, and parsing stops once the
+     * limit is reached.
+     */
+    public List<TransactionXml> queryTransactions(String accountNumber, String startDate,
+                                                  String endDate, int limit) {
+        try (Stream<TransactionXml> transactions = streamTransactions(accountNumber, startDate, endDate)) {
+            return transactions.limit(limit).collect(Collectors.toList());
         }
     }
 
     public List<TransactionXml> loadTransactionsFromXml() {
-        TransactionsWrapper wrapper = loadTransactionsWrapperFromXml();
-        return wrapper.getTransactions() != null ? wrapper.getTransactions() : new ArrayList<>();
+        return queryTransactions(null, null, null, Integer.MAX_VALUE);
     }
 
     public List<TransactionXml> getTransactionsByAccount(String accountNumber) {
-        List<TransactionXml> allTransactions = loadTransactionsFromXml();
-        return allTransactions.stream()
-                .filter(t -> accountNumber.equals(t.getFromAccountNumber()) ||
-                           accountNumber.equals(t.getToAccountNumber()))
-                .collect(Collectors.toList());
+        return queryTransactions(accountNumber, null, null, Integer.MAX_VALUE);
     }
 
     public List<TransactionXml> getTransactionsByDateRange(String accountNumber,
                                                            String startDate, String endDate) {
-        List<TransactionXml> accountTransactions = getTransactionsByAccount(accountNumber);
-        return accountTransactions.stream()
-                .filter(t -> {
-                    String txDate = t.getTransactionDate();
-                    return txDate.compareTo(startDate) >= 0 && txDate.compareTo(endDate) <= 0;
-                })
-                .collect(Collectors.toList());
+        return queryTransactions(accountNumber, startDate, endDate, Integer.MAX_VALUE);
+    }
+
+    private static Predicate<TransactionXml> matching(String accountNumber, String startDate, String endDate) {
+        return t -> {
+            if (accountNumber != null && !accountNumber.equals(t.getFromAccountNumber())
+                    && !accountNumber.equals(t.getToAccountNumber())) {
+                return false;
+            }
+            String txDate = t.getTransactionDate();
+            if (startDate != null && (txDate == null || txDate.compareTo(startDate) < 0)) {
+                return false;
+            }
+            return endDate == null || (txDate != null && txDate.compareTo(endDate) <= 0);
+        };
     }
 
-    private TransactionXml convertToXml(Transaction transaction) {
+    public TransactionXml convertToXml(Transaction transaction) {
         TransactionXml txXml = new TransactionXml();
         txXml.setTransactionId(transaction.getTransactionId());
         txXml.setFromAccountNumber(transaction.getFromAccount() != null ?
@@ -0,0 +1,64 @@
+-- Schema as hibernate.ddl-auto=update created it before the series of changes that
+-- introduced migrations: three tables with identity ids. Databases created then are
+-- baselined at this version and start at V2.
+
+create table users (
+    id bigint generated by default as identity,
+    created_at timestamp(6),
+    email varchar(255) not null,
+    enabled boolean not null,
+    first_name varchar(255) not null,
+    last_login timestamp(6),
+    last_name varchar(255) not null,
+    password varchar(255) not null,
+    phone_number varchar(255) not null,
+    role varchar(255) check (role in ('CUSTOMER','ADMIN')),
+    two_factor_enabled boolean not null,
+    two_factor_secret varchar(255),
+    username varchar(255) not null unique,
+    primary key (id)
+);
+
+create table accounts (
+    id bigint generated by default as identity,
+    account_name varchar(100),
+    account_number varchar(20) not null unique,
+    account_type varchar(255) not null check (account_type in ('SAVINGS','CURRENT','FIXED_DEPOSIT','RECURRING_DEPOSIT')),
+    balance numeric(19,2) not null,
+    created_at timestamp(6),
+    ifsc_code varchar(255) not null,
+    last_updated timestamp(6),
+    user_id bigint not null,
+    primary key (id)
+);
+
+create table transactions (
+    id bigint generated by default as identity,
+    amount numeric(19,2) not null,
+    description varchar(500),
+    external_account_number varchar(20),
+    reference_number varchar(255),
+    remarks varchar(255),
+    status varchar(255) not null check (status in ('PENDING','COMPLETED','FAILED','CANCELLED')),
+    transaction_date timestamp(6) not null,
+    transaction_id varchar(30) not null unique,
+    transaction_type varchar(255) not null check (transaction_type in ('DEPOSIT','WITHDRAWAL','TRANSFER','BILL_PAYMENT','RECHARGE','INTEREST')),
+    from_account_id bigint,
+    to_account_id bigint,
+    primary key (id)
+);
+
+alter table if exists accounts
+    add constraint FKnjuop33mo69pd79ctplkck40n
+    foreign key (user_id)
+    references users;
+
+alter table if exists transactions
+    add constraint FK7i7kboanveneetad7jyhbr0a7
+    foreign key (from_account_id)
+    references accounts;
+
+alter table if exists transactions
+    add constraint FKra0an432c5wjo76mojluk0v28
+    foreign key (to_account_id)
+    references accounts;
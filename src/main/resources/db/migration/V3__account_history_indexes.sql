@@ -0,0 +1,15 @@
+-- Account history is read one side at a time (debits by from_account_id, credits by
+-- to_account_id), newest first, so each side gets an index on the account followed
+-- by the sort key. See TransactionRepository.HISTORY_SQL and findPageFromAccount.
+
+-- databases baselined at V1 may already have them under the names ddl-auto=update
+-- gave them; rename rather than drop, a foreign key may be using them
+alter index if exists IDXskbpd7ltusp5ty7ig7p3jnfa2 rename to idx_transactions_from_account_date;
+
+alter index if exists IDX21gygysbreyx1mhyn3rt4dc2w rename to idx_transactions_to_account_date;
+
+create index if not exists idx_transactions_from_account_date
+    on transactions (from_account_id, transaction_date, id);
+
+create index if not exists idx_transactions_to_account_date
+    on transactions (to_account_id, transaction_date, id);
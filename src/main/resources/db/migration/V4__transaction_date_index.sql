@@ -0,0 +1,5 @@
+-- XML reconciliation re-checks the rows of the last few minutes on every run, to
+-- catch rows that committed after the previous run with an id it had already passed.
+
+create index idx_transactions_date
+    on transactions (transaction_date);
@@ -0,0 +1,4 @@
+-- Posting ids are drawn one at a time (allocationSize = 1) so that they follow insert
+-- order across instances; ledger snapshots bound themselves by posting id.
+
+alter sequence postings_seq increment by 1;
@@ -0,0 +1,12 @@
+-- Clearing batches whose file keeps failing are given up as FAILED after a number of
+-- attempts. The status check constraint has no fixed name, so the column is rebuilt.
+
+alter table clearing_batches add column file_attempts integer default 0 not null;
+
+alter table clearing_batches add column status_new varchar(255);
+update clearing_batches set status_new = status;
+alter table clearing_batches drop column status;
+alter table clearing_batches alter column status_new rename to status;
+alter table clearing_batches alter column status set not null;
+alter table clearing_batches add constraint ck_clearing_batches_status
+    check (status in ('CREATED','SUBMITTED','COMPLETED','FAILED'));
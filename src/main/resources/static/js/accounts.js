@@ -310,7 +310,8 @@
                     method: 'POST',
                     headers: {
                         'Authorization': 'Bearer ' + token,
-                        'Content-Type': 'application/json'
+                        'Content-Type': 'application/json',
+                        'Idempotency-Key': crypto.randomUUID()
                     },
                     body: JSON.stringify({
                         accountNumber: accountNumber,
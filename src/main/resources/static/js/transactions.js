@@ -63,12 +63,19 @@
         }
     }
     
+    // Paging state: the history is loaded one page at a time as the user scrolls
+    const PAGE_SIZE = 50;
+    let currentQuery = null;
+    let nextCursor = null;
+    let loadingPage = false;
+    
     // Load transactions for selected account
     async function loadTransactions() {
         const accountNumber = document.getElementById('accountSelect').value;
         const transactionsList = document.getElementById('transactionsList');
         
         if (!accountNumber) {
+            currentQuery = null;
             if (transactionsList) {
                 transactionsList.innerHTML = '<div class="empty-state"><p>Please select an account</p></div>';
             }
@@ -85,8 +92,28 @@
             return;
         }
         
+        currentQuery = { accountNumber: accountNumber, path: `${API_URL}/transactions/${accountNumber}?` };
+        nextCursor = null;
+        
         try {
-            const response = await fetch(`${API_URL}/transactions/${accountNumber}`, {
+            await loadPage(currentQuery, false);
+        } catch (error) {
+            console.error('Error loading transactions:', error);
+            transactionsList.innerHTML = `<div class="empty-state"><p>Error: ${error.message}</p></div>`;
+        }
+    }
+    
+    // Fetch one page of the current query and render it
+    async function loadPage(query, append) {
+        const token = getToken();
+        let url = `${query.path}limit=${PAGE_SIZE}`;
+        if (append && nextCursor) {
+            url += `&cursor=${encodeURIComponent(nextCursor)}`;
+        }
+        
+        loadingPage = true;
+        try {
+            const response = await fetch(url, {
                 method: 'GET',
                 headers: {
                     'Authorization': 'Bearer ' + token,
@@ -103,27 +130,50 @@
                 throw new Error('Failed to load transactions');
             }
             
-            const transactions = await response.json();
+            const page = await response.json();
             
-            if (!Array.isArray(transactions)) {
-                console.error('Invalid transactions response:', transactions);
-                transactionsList.innerHTML = '<div class="empty-state"><p>Error loading transactions</p></div>';
-                return;
+            if (!page || !Array.isArray(page.items)) {
+                console.error('Invalid transactions response:', page);
+                throw new Error('Invalid transactions response');
             }
             
-            displayTransactions(transactions, accountNumber);
+            // Ignore pages of a query the user has since replaced
+            if (query !== currentQuery) return;
             
+            nextCursor = page.nextCursor || null;
+            displayTransactions(page.items, query.accountNumber, append);
+        } finally {
+            loadingPage = false;
+        }
+    }
+    
+    // Load the next page when the user scrolls near the bottom
+    async function loadMoreIfNeeded() {
+        if (!currentQuery || !nextCursor || loadingPage) return;
+        
+        const nearBottom = window.innerHeight + window.scrollY >= document.body.offsetHeight - 300;
+        if (!nearBottom) return;
+        
+        try {
+            await loadPage(currentQuery, true);
         } catch (error) {
-            console.error('Error loading transactions:', error);
-            transactionsList.innerHTML = `<div class="empty-state"><p>Error: ${error.message}</p></div>`;
+            console.error('Error loading more transactions:', error);
         }
     }
     
-    // Display transactions
-    function displayTransactions(transactions, currentAccountNumber) {
+    // Display transactions, replacing the list or appending to it
+    function displayTransactions(transactions, currentAccountNumber, append) {
         const transactionsList = document.getElementById('transactionsList');
         if (!transactionsList) return;
         
+        const rows = transactions.map(transaction => renderTransaction(transaction, currentAccountNumber)).join('');
+        const body = document.getElementById('transactionsBody');
+        
+        if (append && body) {
+            body.insertAdjacentHTML('beforeend', rows);
+            return;
+        }
+        
         if (!transactions || transactions.length === 0) {
             transactionsList.innerHTML = '<div class="empty-state"><p>No transactions found</p></div>';
             return;
@@ -142,58 +192,8 @@
                         <th style="padding: 12px; text-align: left;">Description</th>
                     </tr>
                 </thead>
-                <tbody>
-                    ${transactions.map(transaction => {
-                        const fromAccountNum = transaction.fromAccountNumber || transaction.fromAccount?.accountNumber || '-';
-                        const toAccountNum = transaction.toAccountNumber || transaction.toAccount?.accountNumber || transaction.externalAccountNumber || '-';
-                        
-                        // Determine if this transaction is debit (outgoing) or credit (incoming) for the current account
-                        // If current account is the fromAccount -> it's a debit (money going out)
-                        // If current account is the toAccount -> it's a credit (money coming in)
-                        const isDebit = (fromAccountNum === currentAccountNumber);
-                        const isCredit = (toAccountNum === currentAccountNumber);
-                        
-                        // For deposits, there's no fromAccount, so it's always credit
-                        // For withdrawals, there's no toAccount, so it's always debit
-                        let transactionDirection = '';
-                        let amountColor = '#666';
-                        
-                        if (transaction.transactionType === 'DEPOSIT') {
-                            transactionDirection = 'Received';
-                            amountColor = '#3c3';
-                        } else if (transaction.transactionType === 'WITHDRAWAL') {
-                            transactionDirection = 'Withdrawn';
-                            amountColor = '#c33';
-                        } else if (isDebit) {
-                            transactionDirection = 'Transferred';
-                            amountColor = '#c33';
-                        } else if (isCredit) {
-                            transactionDirection = 'Received';
-                            amountColor = '#3c3';
-                        }
-                        
-                        const amount = transaction.amount ? parseFloat(transaction.amount) : 0;
-                        const date = transaction.transactionDate ? new Date(transaction.transactionDate).toLocaleString() : 'N/A';
-                        const status = transaction.status || 'UNKNOWN';
-                        const statusColor = status === 'COMPLETED' ? '#3c3' : status === 'FAILED' ? '#c33' : '#fc3';
-                        
-                        return `
-                            <tr style="border-bottom: 1px solid #e0e0e0;">
-                                <td style="padding: 12px;">${date}</td>
-                                <td style="padding: 12px;">${transaction.transactionType || 'N/A'}</td>
-                                <td style="padding: 12px;">${fromAccountNum}</td>
-                                <td style="padding: 12px;">${toAccountNum}</td>
-                                <td style="padding: 12px; text-align: right; font-weight: bold; color: ${amountColor};">
-                                    <span style="font-size: 0.9em; color: #666; margin-right: 5px;">${transactionDirection}</span>
-                                    ${isDebit || transaction.transactionType === 'WITHDRAWAL' ? '-' : '+'}₹${amount.toFixed(2)}
-                                </td>
-                                <td style="padding: 12px;">
-                                    <span style="color: ${statusColor}; font-weight: bold;">${status}</span>
-                                </td>
-                                <td style="padding: 12px;">${transaction.description || '-'}</td>
-                            </tr>
-                        `;
-                    }).join('')}
+                <tbody id="transactionsBody">
+                    ${rows}
                 </tbody>
             </table>
         `;
@@ -201,6 +201,59 @@
         transactionsList.innerHTML = html;
     }
     
+    // Render one table row
+    function renderTransaction(transaction, currentAccountNumber) {
+        const fromAccountNum = transaction.fromAccountNumber || transaction.fromAccount?.accountNumber || '-';
+        const toAccountNum = transaction.toAccountNumber || transaction.toAccount?.accountNumber || transaction.externalAccountNumber || '-';
+        
+        // Determine if this transaction is debit (outgoing) or credit (incoming) for the current account
+        // If current account is the fromAccount -> it's a debit (money going out)
+        // If current account is the toAccount -> it's a credit (money coming in)
+        const isDebit = (fromAccountNum === currentAccountNumber);
+        const isCredit = (toAccountNum === currentAccountNumber);
+        
+        // For deposits, there's no fromAccount, so it's always credit
+        // For withdrawals, there's no toAccount, so it's always debit
+        let transactionDirection = '';
+        let amountColor = '#666';
+        
+        if (transaction.transactionType === 'DEPOSIT') {
+            transactionDirection = 'Received';
+            amountColor = '#3c3';
+        } else if (transaction.transactionType === 'WITHDRAWAL') {
+            transactionDirection = 'Withdrawn';
+            amountColor = '#c33';
+        } else if (isDebit) {
+            transactionDirection = 'Transferred';
+            amountColor = '#c33';
+        } else if (isCredit) {
+            transactionDirection = 'Received';
+            amountColor = '#3c3';
+        }
+        
+        const amount = transaction.amount ? parseFloat(transaction.amount) : 0;
+        const date = transaction.transactionDate ? new Date(transaction.transactionDate).toLocaleString() : 'N/A';
+        const status = transaction.status || 'UNKNOWN';
+        const statusColor = status === 'COMPLETED' ? '#3c3' : status === 'FAILED' ? '#c33' : '#fc3';
+        
+        return `
+            <tr style="border-bottom: 1px solid #e0e0e0;">
+                <td style="padding: 12px;">${date}</td>
+                <td style="padding: 12px;">${transaction.transactionType || 'N/A'}</td>
+                <td style="padding: 12px;">${fromAccountNum}</td>
+                <td style="padding: 12px;">${toAccountNum}</td>
+                <td style="padding: 12px; text-align: right; font-weight: bold; color: ${amountColor};">
+                    <span style="font-size: 0.9em; color: #666; margin-right: 5px;">${transactionDirection}</span>
+                    ${isDebit || transaction.transactionType === 'WITHDRAWAL' ? '-' : '+'}₹${amount.toFixed(2)}
+                </td>
+                <td style="padding: 12px;">
+                    <span style="color: ${statusColor}; font-weight: bold;">${status}</span>
+                </td>
+                <td style="padding: 12px;">${transaction.description || '-'}</td>
+            </tr>
+        `;
+    }
+    
     // Filter transactions by date range
     async function filterTransactions() {
         const accountNumber = document.getElementById('accountSelect').value;
@@ -227,30 +280,13 @@
             const startDateTime = new Date(startDate).toISOString();
             const endDateTime = new Date(endDate).toISOString();
             
-            const response = await fetch(
-                `${API_URL}/transactions/${accountNumber}/history?startDate=${startDateTime}&endDate=${endDateTime}`,
-                {
-                    method: 'GET',
-                    headers: {
-                        'Authorization': 'Bearer ' + token,
-                        'Content-Type': 'application/json'
-                    }
-                }
-            );
-            
-            if (!response.ok) {
-                throw new Error('Failed to filter transactions');
-            }
-            
-            const transactions = await response.json();
-            
-            if (!Array.isArray(transactions)) {
-                console.error('Invalid transactions response:', transactions);
-                alert('Error filtering transactions');
-                return;
-            }
+            currentQuery = {
+                accountNumber: accountNumber,
+                path: `${API_URL}/transactions/${accountNumber}/history?startDate=${startDateTime}&endDate=${endDateTime}&`
+            };
+            nextCursor = null;
             
-            displayTransactions(transactions, accountNumber);
+            await loadPage(currentQuery, false);
         } catch (error) {
             console.error('Error filtering transactions:', error);
             alert('Error: ' + error.message);
@@ -268,6 +304,7 @@
     window.loadTransactions = loadTransactions;
     window.filterTransactions = filterTransactions;
     window.resetFilter = resetFilter;
+    window.addEventListener('scroll', loadMoreIfNeeded);
     
     // Initialize when DOM is ready
     if (document.readyState === 'loading') {
@@ -201,7 +201,8 @@
                     method: 'POST',
                     headers: {
                         'Authorization': 'Bearer ' + token,
-                        'Content-Type': 'application/json'
+                        'Content-Type': 'application/json',
+                        'Idempotency-Key': crypto.randomUUID()
                     },
                     body: JSON.stringify(requestData)
                 });
@@ -219,7 +220,11 @@
                 
                 if (response.ok) {
                     const transactionId = data.id || data.transactionId || 'N/A';
-                    showSuccess(`Transfer successful! Transaction ID: ${transactionId}`);
+                    if (data.status === 'PENDING') {
+                        showSuccess(`Transfer submitted for clearing. Transaction ID: ${transactionId}`);
+                    } else {
+                        showSuccess(`Transfer successful! Transaction ID: ${transactionId}`);
+                    }
                     form.reset();
                     // Reload accounts to update balances
                     setTimeout(loadAccounts, 500);
@@ -0,0 +1,84 @@
+package com.banking.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Starts on a database created by the application before migrations took over: the
+ * V1 schema with data in it and no Flyway history. Flyway has to baseline it and
+ * bring it to the schema Hibernate validates against, keeping the existing rows.
+ */
+@DataJpaTest
+@Import(PreSeriesSchemaMigrationTest.PreSeriesDatabase.class)
+class PreSeriesSchemaMigrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PostingRepository postingRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ClearingBatchRepository clearingBatchRepository;
+
+    @Test
+    void baselinesAndMigratesExistingDatabase() {
+        List<String> applied = jdbcTemplate.queryForList(
+                "SELECT \"version\" FROM \"flyway_schema_history\" WHERE \"success\" AND \"version\" IS NOT NULL ORDER BY \"installed_rank\"",
+                String.class);
+        assertEquals(List.of("1", "2", "3", "4", "5", "6"), applied);
+        assertEquals("BASELINE", jdbcTemplate.queryForObject(
+                "SELECT \"type\" FROM \"flyway_schema_history\" WHERE \"version\" = '1'", String.class));
+
+        assertEquals(2, transactionRepository.findAll().size());
+        assertNull(transactionRepository.findAll().get(0).getClearingBatchId());
+        assertEquals(0, postingRepository.count());
+        assertEquals(0, outboxEventRepository.count());
+        assertEquals(0, clearingBatchRepository.count());
+    }
+
+    @TestConfiguration
+    static class PreSeriesDatabase {
+
+        // creates the old schema and its data before Flyway first looks at the database
+        @Bean
+        FlywayMigrationStrategy preSeriesDatabase() {
+            return flyway -> {
+                new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline.sql"))
+                        .execute(flyway.getConfiguration().getDataSource());
+                JdbcTemplate jdbc = new JdbcTemplate(flyway.getConfiguration().getDataSource());
+                jdbc.update("INSERT INTO users (email, enabled, first_name, last_name, password, phone_number,"
+                        + " role, two_factor_enabled, username) VALUES ('old@example.com', TRUE, 'Old', 'User',"
+                        + " 'x', '9000000000', 'CUSTOMER', FALSE, 'olduser')");
+                jdbc.update("INSERT INTO accounts (account_number, account_type, balance, ifsc_code, user_id)"
+                        + " VALUES ('1900000009', 'SAVINGS', 150.00, 'BANK0001234', 1)");
+                jdbc.update("INSERT INTO transactions (amount, status, transaction_date, transaction_id,"
+                        + " transaction_type, to_account_id) VALUES (200.00, 'COMPLETED', CURRENT_TIMESTAMP,"
+                        + " 'TXN-OLD-1', 'DEPOSIT', 1)");
+                jdbc.update("INSERT INTO transactions (amount, status, transaction_date, transaction_id,"
+                        + " transaction_type, from_account_id, external_account_number) VALUES (50.00,"
+                        + " 'COMPLETED', CURRENT_TIMESTAMP, 'TXN-OLD-2', 'TRANSFER', 1, '123456789012')");
+                flyway.migrate();
+            };
+        }
+    }
+}
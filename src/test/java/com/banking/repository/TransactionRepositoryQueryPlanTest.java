@@ -0,0 +1,43 @@
+package com.banking.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks through H2's EXPLAIN that the account history queries are answered from the
+ * indexes the migrations create. A missing or unusable index shows up as a table scan
+ * in the plan, instead of being noticed later as slow history pages on large accounts.
+ */
+@DataJpaTest
+class TransactionRepositoryQueryPlanTest {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("accountId", 1L)
+            .addValue("startDate", LocalDateTime.now().minusMonths(1))
+            .addValue("endDate", LocalDateTime.now());
+
+    @Test
+    void historyUsesIndexes() {
+        assertNoTableScan(TransactionRepository.HISTORY_SQL);
+    }
+
+    @Test
+    void historyInRangeUsesIndexes() {
+        assertNoTableScan(TransactionRepository.HISTORY_IN_RANGE_SQL);
+    }
+
+    private void assertNoTableScan(String sql) {
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, params, String.class));
+        assertFalse(plan.contains("tableScan"), "Query plan scans a table:\n" + plan);
+    }
+}
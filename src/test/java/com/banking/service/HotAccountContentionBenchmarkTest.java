@@ -0,0 +1,157 @@
+package com.banking.service;
+
+import com.banking.OnlineBankingApplication;
+import com.banking.model.Account;
+import com.banking.model.User;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transfer throughput when every thread pays into the same account, against every
+ * thread paying into its own account. {@code hot-row} credits the shared account
+ * through its row lock; {@code hot-slots} puts it in hot mode first, so credits go
+ * to balance slots. After each trial the money in the benchmark accounts must add
+ * up to what they were opened with.
+ * Run with {@code mvn test -Dgroups=benchmark -DexcludedGroups=none -Dtest=HotAccountContentionBenchmarkTest}.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HotAccountContentionBenchmarkTest {
+
+    private static final int THREADS = 8;
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"spread", "hot-row", "hot-slots"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private AccountService accountService;
+    private final List<String> senders = new ArrayList<>();
+    private final List<String> receivers = new ArrayList<>();
+    private final AtomicInteger nextThread = new AtomicInteger();
+    private BigDecimal openingTotal;
+
+    @State(Scope.Thread)
+    public static class Payer {
+        String from;
+        String to;
+
+        @Setup
+        public void setUp(HotAccountContentionBenchmarkTest benchmark) {
+            int thread = benchmark.nextThread.getAndIncrement();
+            from = benchmark.senders.get(thread);
+            to = benchmark.mode.equals("spread") ? benchmark.receivers.get(thread) : benchmark.receivers.get(0);
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        Path data = Files.createTempDirectory("contention-benchmark");
+        // arguments, so they win over application.properties
+        context = new SpringApplicationBuilder(OnlineBankingApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.show-sql=false",
+                "--banking.transactions.xml.path=" + data.resolve("transactions.xml"),
+                "--banking.transactions.xml.fsync=false",
+                "--banking.transactions.xml.reconcile.on-startup=false",
+                "--banking.transactions.columnar.path=" + data.resolve("transactions.cols"),
+                "--banking.clearing.outbound-dir=" + data.resolve("outbound"),
+                "--banking.clearing.inbound-dir=" + data.resolve("inbound"),
+                "--banking.notifications.email.enabled=false");
+        transactionService = context.getBean(TransactionService.class);
+        accountService = context.getBean(AccountService.class);
+        AuthService authService = context.getBean(AuthService.class);
+
+        for (int i = 0; i < THREADS; i++) {
+            senders.add(openAccount(authService, "payer" + i));
+            receivers.add(openAccount(authService, "payee" + i));
+        }
+        if (!mode.equals("spread")) {
+            // one destination for all threads
+            receivers.subList(1, receivers.size()).clear();
+        }
+        if (mode.equals("hot-slots")) {
+            context.getBean(HotAccountService.class).enable(receivers.get(0), 32);
+        }
+        openingTotal = total();
+    }
+
+    @TearDown
+    public void tearDown() {
+        BigDecimal closingTotal = total();
+        context.close();
+        if (closingTotal.compareTo(openingTotal) != 0) {
+            throw new IllegalStateException("Balances went from " + openingTotal + " to " + closingTotal);
+        }
+    }
+
+    @Benchmark
+    public Object transfer(Payer payer) {
+        return transactionService.transferFunds(payer.from, payer.to, AMOUNT, "contention");
+    }
+
+    @Test
+    void run() throws Exception {
+        // in-process: surefire's classpath is not visible to forked JMH workers
+        Options options = new OptionsBuilder()
+                .include(getClass().getName())
+                .forks(0)
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(3))
+                .threads(THREADS)
+                .shouldFailOnError(true)
+                .build();
+        new Runner(options).run();
+    }
+
+    private BigDecimal total() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (String accountNumber : senders) {
+            total = total.add(accountService.getAccountBalance(accountNumber));
+        }
+        for (String accountNumber : receivers) {
+            total = total.add(accountService.getAccountBalance(accountNumber));
+        }
+        return total;
+    }
+
+    private String openAccount(AuthService authService, String username) {
+        User user = authService.registerUser(username, "password", username + "@bench.local",
+                "Bench", username, "0000000000");
+        return accountService.getUserAccounts(user.getId()).stream()
+                .filter(account -> account.getAccountType() == Account.AccountType.SAVINGS)
+                .findFirst()
+                .orElseThrow()
+                .getAccountNumber();
+    }
+}
@@ -0,0 +1,88 @@
+package com.banking.service;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.Marshaller;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing one journal record the old way (a new JAXBContext and marshaller
+ * per save) with the shared {@link XmlTransactionCodec}, both with the same
+ * {@code formatted-output} setting so only the codec differs.
+ * Run with {@code mvn test -Dgroups=benchmark -DexcludedGroups=none -Dtest=XmlCodecBenchmarkTest}.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class XmlCodecBenchmarkTest {
+
+    // banking.transactions.xml.formatted-output
+    @Param({"false", "true"})
+    public boolean formattedOutput;
+
+    private XmlTransactionCodec codec;
+    private XmlTransactionService.TransactionXml record;
+
+    @Setup
+    public void setUp() {
+        codec = new XmlTransactionCodec(formattedOutput);
+        record = new XmlTransactionService.TransactionXml();
+        record.setTransactionId("TXN369576067981115392");
+        record.setFromAccountNumber("1900000009");
+        record.setToAccountNumber("1900000017");
+        record.setAmount("125.50");
+        record.setTransactionType("TRANSFER");
+        record.setStatus("COMPLETED");
+        record.setDescription("Rent");
+        record.setTransactionDate("2026-10-16T20:03:13.246158");
+    }
+
+    @Benchmark
+    public byte[] newContextPerRecord() throws Exception {
+        JAXBContext context = JAXBContext.newInstance(XmlTransactionService.TransactionsWrapper.class);
+        Marshaller marshaller = context.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formattedOutput);
+        XmlTransactionService.TransactionsWrapper wrapper = new XmlTransactionService.TransactionsWrapper();
+        wrapper.setTransactions(List.of(record));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshal(wrapper, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] sharedCodec() throws Exception {
+        return codec.marshalRecord(record);
+    }
+
+    @Test
+    void run() throws Exception {
+        // in-process: surefire's classpath is not visible to forked JMH workers
+        Options options = new OptionsBuilder()
+                .include(getClass().getName())
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .threads(4)
+                .build();
+        new Runner(options).run();
+    }
+}
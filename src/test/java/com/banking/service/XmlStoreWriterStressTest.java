@@ -0,0 +1,258 @@
+package com.banking.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many threads appending through the single XML store writer at once, with readers
+ * taking snapshots alongside: every acknowledged record must be in the store
+ * exactly once, also after reopening it.
+ */
+class XmlStoreWriterStressTest {
+
+    private static final int WRITERS = 16;
+    private static final int WRITES_PER_WRITER = 300;
+
+    @TempDir
+    Path dir;
+
+    private final XmlTransactionCodec codec = new XmlTransactionCodec(false);
+
+    @Test
+    void concurrentAppendsAreAllStoredOnce() throws Exception {
+        Path path = dir.resolve("transactions.xml");
+        XmlSegmentStore store = new XmlSegmentStore(path, XmlSegmentStore.SegmentPeriod.DAILY, false);
+        store.open();
+        XmlStoreWriter writer = new XmlStoreWriter(store);
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<String> acknowledged = new ConcurrentLinkedQueue<>();
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writerId = w;
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < WRITES_PER_WRITER; i++) {
+                    // one to three records per call, spread over three daily segments
+                    List<XmlTransactionService.TransactionXml> transactions = new ArrayList<>();
+                    for (int r = 0; r <= i % 3; r++) {
+                        transactions.add(record("W" + writerId + "-" + i + "-" + r, 10 + (i + r) % 3));
+                    }
+                    writer.write(transactions, marshal(transactions));
+                    transactions.forEach(transaction -> acknowledged.add(transaction.getTransactionId()));
+                }
+                return null;
+            }));
+        }
+
+        // readers must always see whole records while the writer is appending
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readers.add(pool.submit(() -> {
+                while (writing.get()) {
+                    try (Stream<XmlTransactionService.TransactionXml> records = store.stream(null, null, null, x -> true)) {
+                        records.forEach(record -> assertTrue(record.getTransactionId().startsWith("W")));
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : writers) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        writing.set(false);
+        for (Future<?> future : readers) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+        writer.close();
+
+        int expected = WRITERS * (WRITES_PER_WRITER / 3) * (1 + 2 + 3);
+        assertEquals(expected, acknowledged.size());
+        assertStoredOnce(store, acknowledged);
+        store.close();
+
+        XmlSegmentStore reopened = new XmlSegmentStore(path, XmlSegmentStore.SegmentPeriod.DAILY, false);
+        reopened.open();
+        assertStoredOnce(reopened, acknowledged);
+        reopened.close();
+    }
+
+    @Test
+    void badRecordFailsOnlyItsOwnCaller() throws Exception {
+        XmlSegmentStore store = new XmlSegmentStore(dir.resolve("transactions.xml"),
+                XmlSegmentStore.SegmentPeriod.DAILY, false);
+        store.open();
+        XmlStoreWriter writer = new XmlStoreWriter(store);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> good = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            List<XmlTransactionService.TransactionXml> transactions = List.of(record("G" + i, 12));
+            good.add(pool.submit(() -> {
+                start.await();
+                writer.write(transactions, marshal(transactions));
+                return null;
+            }));
+        }
+        XmlTransactionService.TransactionXml bad = record("BAD", 12);
+        bad.setTransactionDate("not a date");
+        Future<?> badWrite = pool.submit(() -> {
+            start.await();
+            writer.write(List.of(bad), marshal(List.of(bad)));
+            return null;
+        });
+
+        start.countDown();
+        for (Future<?> future : good) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        assertThrows(Exception.class, () -> badWrite.get(1, TimeUnit.MINUTES));
+        pool.shutdown();
+        writer.close();
+
+        try (Stream<XmlTransactionService.TransactionXml> records = store.stream(null, null, null, x -> true)) {
+            List<String> ids = records.map(XmlTransactionService.TransactionXml::getTransactionId).toList();
+            assertEquals(200, ids.size());
+            assertFalse(ids.contains("BAD"));
+        }
+        store.close();
+    }
+
+    @Test
+    void failedSecondSegmentIsNotWrittenTwice() throws Exception {
+        Path path = dir.resolve("transactions.xml");
+        AtomicInteger secondSegmentCalls = new AtomicInteger();
+        XmlSegmentStore store = new XmlSegmentStore(path, XmlSegmentStore.SegmentPeriod.DAILY, false) {
+            @Override
+            XmlJournalSegment newSegment(String name, Path segmentPath, LocalDateTime start, LocalDateTime end) {
+                return new XmlJournalSegment(name, segmentPath, start, end, false) {
+                    @Override
+                    synchronized void appendBatch(List<XmlTransactionService.TransactionXml> transactions,
+                                                  List<byte[]> records) throws IOException {
+                        // the first segment of every batch is already on disk by now
+                        if (getStart().getDayOfMonth() == 11 && secondSegmentCalls.incrementAndGet() % 4 == 0) {
+                            throw new IOException("injected failure in " + getName());
+                        }
+                        super.appendBatch(transactions, records);
+                    }
+                };
+            }
+        };
+        store.open();
+        XmlStoreWriter writer = new XmlStoreWriter(store);
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<String> stored = new ConcurrentLinkedQueue<>();
+        AtomicInteger failedWrites = new AtomicInteger();
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writerId = w;
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    // each call spans the segment of the 10th, then that of the 11th
+                    List<XmlTransactionService.TransactionXml> transactions = List.of(
+                            record("P" + writerId + "-" + i + "-a", 10), record("P" + writerId + "-" + i + "-b", 11));
+                    BitSet written = new BitSet();
+                    try {
+                        writer.write(transactions, marshal(transactions));
+                        written.set(0, transactions.size());
+                    } catch (XmlSegmentStore.PartialWriteException e) {
+                        failedWrites.incrementAndGet();
+                        written = e.getWritten();
+                    } catch (IOException e) {
+                        failedWrites.incrementAndGet();
+                    }
+                    for (int r = written.nextSetBit(0); r >= 0; r = written.nextSetBit(r + 1)) {
+                        stored.add(transactions.get(r).getTransactionId());
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : writers) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+        writer.close();
+
+        assertTrue(failedWrites.get() > 0);
+        assertStoredOnce(store, stored);
+        store.close();
+
+        XmlSegmentStore reopened = new XmlSegmentStore(path, XmlSegmentStore.SegmentPeriod.DAILY, false);
+        reopened.open();
+        assertStoredOnce(reopened, stored);
+        reopened.close();
+    }
+
+    private static void assertStoredOnce(XmlSegmentStore store, ConcurrentLinkedQueue<String> acknowledged) {
+        Map<String, Long> counts;
+        try (Stream<XmlTransactionService.TransactionXml> records = store.stream(null, null, null, x -> true)) {
+            counts = records.collect(Collectors.groupingBy(XmlTransactionService.TransactionXml::getTransactionId,
+                    HashMap::new, Collectors.counting()));
+        }
+        assertEquals(acknowledged.size(), counts.size());
+        for (String transactionId : acknowledged) {
+            assertEquals(1L, counts.getOrDefault(transactionId, 0L), transactionId);
+        }
+    }
+
+    private List<byte[]> marshal(List<XmlTransactionService.TransactionXml> transactions) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        for (XmlTransactionService.TransactionXml transaction : transactions) {
+            try {
+                records.add(codec.marshalRecord(transaction));
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+        return records;
+    }
+
+    private static XmlTransactionService.TransactionXml record(String transactionId, int day) {
+        XmlTransactionService.TransactionXml record = new XmlTransactionService.TransactionXml();
+        record.setTransactionId(transactionId);
+        record.setFromAccountNumber("1900000009");
+        record.setToAccountNumber("1900000017");
+        record.setAmount("1.00");
+        record.setTransactionType("TRANSFER");
+        record.setStatus("COMPLETED");
+        record.setDescription("stress");
+        record.setTransactionDate("2026-10-" + day + "T12:00:00");
+        return record;
+    }
+}